@@ -0,0 +1,77 @@
+package easyarchive.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import easyarchive.CompressionAlgorithm;
+import easyarchive.EasyArchive;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compress and decompress throughput for every CompressionAlgorithm over a fixed
+// corpus. Besides ops/s, each run reports inputBytes and outputBytes counters:
+// their rates are the throughput in bytes per second, and outputBytes divided
+// by inputBytes on the compress benchmark is the compression ratio. Add
+// -prof gc to see the allocation rate per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CompressionBenchmark {
+    // Name prefixes as accepted by EasyArchive.getAlgorithm.
+    @Param({ "arithmetic", "run-length", "huffman", "golomb", "lempel", "lzss", "bwt" })
+    public String algorithm;
+
+    @Param({ "text", "logs", "binary", "compressed", "repetitive" })
+    public String corpus;
+
+    @Param({ "65536", "1048576", "8388608" })
+    public int size;
+
+    private CompressionAlgorithm codec;
+    private byte[] input;
+    private byte[] compressed;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long inputBytes;
+        public long outputBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        codec = EasyArchive.getAlgorithm(algorithm);
+        input = Corpus.generate(corpus, size);
+        compressed = codec.compress(input);
+    }
+
+    @Benchmark
+    public byte[] compress(Bytes bytes) throws Exception {
+        byte[] output = codec.compress(input);
+        bytes.inputBytes += input.length;
+        bytes.outputBytes += output.length;
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decompress(Bytes bytes) throws Exception {
+        byte[] output = codec.decompress(compressed);
+        bytes.inputBytes += compressed.length;
+        bytes.outputBytes += output.length;
+        return output;
+    }
+}
@@ -0,0 +1,143 @@
+package easyarchive.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+// Deterministic benchmark inputs. Every kind is generated from a fixed seed so
+// runs on different machines and commits compress exactly the same bytes.
+final class Corpus {
+    private static final String[] WORDS = {
+            "the", "of", "and", "to", "in", "is", "that", "for", "it", "as", "was", "with", "be", "by",
+            "on", "not", "he", "this", "are", "or", "his", "from", "at", "which", "but", "have", "an",
+            "archive", "compression", "file", "block", "stream", "symbol", "frequency", "dictionary",
+            "entropy", "window", "buffer", "decode", "encode", "huffman", "length", "offset", "table"
+    };
+    private static final String[] LEVELS = { "INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR" };
+    private static final String[] PATHS = {
+            "/api/v1/items", "/api/v1/users", "/api/v1/orders", "/health", "/api/v2/search", "/static/app.js"
+    };
+
+    private Corpus() {
+    }
+
+    static byte[] generate(String kind, int size) {
+        Random random = new Random(0x5EED ^ kind.hashCode());
+        switch (kind) {
+            case "text":
+                return text(random, size);
+            case "logs":
+                return logs(random, size);
+            case "binary":
+                return binary(random, size);
+            case "compressed":
+                return compressed(random, size);
+            case "repetitive":
+                return repetitive(random, size);
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + kind);
+        }
+    }
+
+    private static byte[] text(Random random, int size) {
+        StringBuilder text = new StringBuilder(size + 64);
+        while (text.length() < size) {
+            int sentenceLength = 5 + random.nextInt(15);
+            for (int i = 0; i < sentenceLength; i++) {
+                String word = WORDS[(int)(Math.abs(random.nextGaussian()) * WORDS.length / 3) % WORDS.length];
+                text.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                text.append(i == sentenceLength - 1 ? ". " : " ");
+            }
+            if (random.nextInt(6) == 0) {
+                text.append('\n');
+            }
+        }
+        return truncate(text.toString().getBytes(StandardCharsets.US_ASCII), size);
+    }
+
+    private static byte[] logs(Random random, int size) {
+        StringBuilder logs = new StringBuilder(size + 256);
+        long timestamp = 1_700_000_000_000L;
+        while (logs.length() < size) {
+            timestamp += random.nextInt(50);
+            logs.append(timestamp).append(' ')
+                    .append(LEVELS[random.nextInt(LEVELS.length)]).append(" [worker-").append(random.nextInt(16))
+                    .append("] request id=").append(Long.toHexString(random.nextLong()))
+                    .append(" path=").append(PATHS[random.nextInt(PATHS.length)])
+                    .append(" status=").append(random.nextInt(20) == 0 ? 500 : 200)
+                    .append(" took=").append(random.nextInt(900)).append("ms\n");
+        }
+        return truncate(logs.toString().getBytes(StandardCharsets.US_ASCII), size);
+    }
+
+    // Records of slowly drifting integers and floats, like sensor dumps.
+    private static byte[] binary(Random random, int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(size + 16).order(ByteOrder.LITTLE_ENDIAN);
+        int counter = 0;
+        float value = 20.0f;
+        while (buffer.position() < size) {
+            counter += 1 + random.nextInt(3);
+            value += (float)random.nextGaussian() * 0.1f;
+            buffer.putInt(counter);
+            buffer.putFloat(value);
+            buffer.putShort((short)random.nextInt(1024));
+            buffer.putShort((short)0);
+        }
+        return truncate(buffer.array(), size);
+    }
+
+    private static byte[] compressed(Random random, int size) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(text(random, size * 4));
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(size + 1024);
+        byte[] chunk = new byte[64 * 1024];
+        while (!deflater.finished() && output.size() < size) {
+            output.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        byte[] data = output.toByteArray();
+        if (data.length < size) {
+            byte[] padded = new byte[size];
+            System.arraycopy(data, 0, padded, 0, data.length);
+            byte[] noise = new byte[size - data.length];
+            random.nextBytes(noise);
+            System.arraycopy(noise, 0, padded, data.length, noise.length);
+            return padded;
+        }
+        return truncate(data, size);
+    }
+
+    // Long runs of single bytes mixed with repeats of earlier 4 KB pages.
+    private static byte[] repetitive(Random random, int size) {
+        byte[] data = new byte[size];
+        int position = 0;
+        while (position < size) {
+            if (position >= 4096 && random.nextBoolean()) {
+                int source = random.nextInt(position / 4096) * 4096;
+                int length = Math.min(4096, size - position);
+                System.arraycopy(data, source, data, position, length);
+                position += length;
+            } else {
+                int length = Math.min(1 + random.nextInt(2000), size - position);
+                byte value = random.nextInt(3) == 0 ? 0 : (byte)random.nextInt(256);
+                for (int i = 0; i < length; i++) {
+                    data[position++] = value;
+                }
+            }
+        }
+        return data;
+    }
+
+    private static byte[] truncate(byte[] data, int size) {
+        if (data.length == size) {
+            return data;
+        }
+        byte[] result = new byte[size];
+        System.arraycopy(data, 0, result, 0, size);
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+package easyarchive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class AlgorithmRoundTripTest {
+    static List<CompressionAlgorithm> algorithms() {
+        return TestData.algorithms();
+    }
+
+    private static Map<String, byte[]> inputs() {
+        Map<String, byte[]> inputs = new LinkedHashMap<>();
+        inputs.put("empty", new byte[0]);
+        inputs.put("one byte", new byte[] { 42 });
+        inputs.put("text", TestData.text(100_000, 1));
+        inputs.put("random", TestData.random(50_000, 2));
+        inputs.put("zeros", new byte[200_000]);
+        byte[] ramp = new byte[4096];
+        for (int i = 0; i < ramp.length; i++) {
+            ramp[i] = (byte) i;
+        }
+        inputs.put("every byte value", ramp);
+        // Crosses the BLOCK_SIZE the codecs read in.
+        inputs.put("more than a block", TestData.mixed(CompressionAlgorithm.BLOCK_SIZE + 17, 3));
+        return inputs;
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void streamsRoundTrip(CompressionAlgorithm algorithm) throws IOException {
+        for (Map.Entry<String, byte[]> input : inputs().entrySet()) {
+            byte[] compressed = TestData.compress(algorithm, input.getValue());
+            assertArrayEquals(input.getValue(), TestData.decompress(algorithm, compressed), input.getKey());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void arraysRoundTrip(CompressionAlgorithm algorithm) throws IOException {
+        for (Map.Entry<String, byte[]> input : inputs().entrySet()) {
+            byte[] compressed = algorithm.compress(input.getValue());
+            assertArrayEquals(input.getValue(), algorithm.decompress(compressed), input.getKey());
+        }
+    }
+
+    // Output sized by maxCompressedLength never runs out, in heap or direct
+    // buffers, and holds the stream format.
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void buffersWithinBoundRoundTrip(CompressionAlgorithm algorithm) throws IOException {
+        for (Map.Entry<String, byte[]> input : inputs().entrySet()) {
+            long bound = algorithm.maxCompressedLength(input.getValue().length);
+            if (bound < 0) {
+                continue;
+            }
+            for (ByteBuffer output : List.of(ByteBuffer.allocate((int) bound), ByteBuffer.allocateDirect((int) bound))) {
+                algorithm.compress(ByteBuffer.wrap(input.getValue()), output);
+                byte[] compressed = new byte[output.flip().remaining()];
+                output.get(compressed);
+                assertArrayEquals(input.getValue(), TestData.decompress(algorithm, compressed), input.getKey());
+            }
+        }
+    }
+
+    // Random data fills the 65,536-code dictionary several times over, so the
+    // stream has CLEAR codes, and short inputs of every length end at each code
+    // width change.
+    @Test
+    void lzwClearsAndWidensTheDictionary() throws IOException {
+        LZWCompressionAlgorithm lzw = new LZWCompressionAlgorithm();
+        byte[] random = TestData.random(400_000, 4);
+        assertArrayEquals(random, TestData.decompress(lzw, TestData.compress(lzw, random)));
+        byte[] text = TestData.text(1500, 5);
+        for (int length = 0; length <= text.length; length++) {
+            byte[] input = Arrays.copyOf(text, length);
+            assertArrayEquals(input, TestData.decompress(lzw, TestData.compress(lzw, input)), "length " + length);
+        }
+    }
+
+    // Run and literal lengths around the one, two and three byte varint limits.
+    @Test
+    void runLengthVarintsCoverLongRuns() throws IOException {
+        RunLengthCompressionAlgorithm rle = new RunLengthCompressionAlgorithm();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int value = 1;
+        for (int run : new int[] { 1, 2, 3, 4, 66, 67, 130, 131, 8193, 8194, 16386, 16387, 70_000 }) {
+            byte[] bytes = new byte[run];
+            Arrays.fill(bytes, (byte) value++);
+            data.writeBytes(bytes);
+        }
+        data.writeBytes(TestData.random(20_000, 6));
+        byte[] input = data.toByteArray();
+        byte[] compressed = TestData.compress(rle, input);
+        assertArrayEquals(input, TestData.decompress(rle, compressed));
+        assertTrue(compressed.length < input.length / 2);
+    }
+
+    // A single symbol, two symbols, an alphabet with gaps longer than one
+    // zero-run nibble, and Fibonacci frequencies that need the 15-bit limit.
+    @Test
+    void huffmanCodeLengthTables() throws IOException {
+        HuffmanCompressionAlgorithm huffman = new HuffmanCompressionAlgorithm();
+        byte[] single = new byte[1000];
+        Arrays.fill(single, (byte) 'x');
+        byte[] two = TestData.random(1000, 7);
+        for (int i = 0; i < two.length; i++) {
+            two[i] = (byte) (two[i] & 1);
+        }
+        byte[] sparse = new byte[3000];
+        for (int i = 0; i < sparse.length; i++) {
+            sparse[i] = (byte) (i % 3 == 0 ? 0 : i % 3 == 1 ? 100 : 255);
+        }
+        ByteArrayOutputStream skewed = new ByteArrayOutputStream();
+        long a = 1;
+        long b = 1;
+        for (int symbol = 0; symbol < 25; symbol++) {
+            for (long i = 0; i < a; i++) {
+                skewed.write(symbol);
+            }
+            long next = a + b;
+            a = b;
+            b = next;
+        }
+        for (byte[] input : List.of(single, two, sparse, skewed.toByteArray())) {
+            assertArrayEquals(input, TestData.decompress(huffman, TestData.compress(huffman, input)));
+        }
+    }
+
+    // Order-0 frequencies are scaled to 2^15; a symbol seen once in a block
+    // must keep a nonzero frequency. The adaptive models keep a floor under
+    // every probability, so a long run costs them about 1% rather than ~0.
+    @Test
+    void rangeCoderKeepsRareSymbols() throws IOException {
+        byte[] input = new byte[CompressionAlgorithm.BLOCK_SIZE];
+        input[input.length / 2] = 1;
+        for (int order = 0; order <= ArithmeticCompressionAlgorithm.MAX_ORDER; order++) {
+            ArithmeticCompressionAlgorithm arithmetic = new ArithmeticCompressionAlgorithm(order);
+            byte[] compressed = TestData.compress(arithmetic, input);
+            assertArrayEquals(input, TestData.decompress(arithmetic, compressed), "order " + order);
+            assertTrue(compressed.length < input.length / 50, "order " + order);
+        }
+    }
+
+    // Any chain decodes through the registered pipeline, which reads the
+    // chain from the stream header.
+    @Test
+    void pipelineHeaderRecordsTheChain() throws IOException {
+        CodecPipeline pipeline = CodecPipeline.parse("delta+mtf+rle+lzss");
+        byte[] input = TestData.mixed(300_000, 8);
+        byte[] compressed = TestData.compress(pipeline, input);
+        CompressionAlgorithm registered = AlgorithmRegistry.getDefault().get(pipeline.getAlgorithmId());
+        assertArrayEquals(input, TestData.decompress(registered, compressed));
+        assertEquals(pipeline.getAlgorithmName(), CodecPipeline.readHeader(
+                new DataInputStream(new ByteArrayInputStream(compressed))).getAlgorithmName());
+    }
+}
@@ -0,0 +1,273 @@
+package easyarchive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArchiveTest {
+    private static final String STORE = new StoredCompressionAlgorithm().getAlgorithmName();
+    private static final String HUFFMAN = new HuffmanCompressionAlgorithm().getAlgorithmName();
+    private static final String LZSS = new LZSSCompressionAlgorithm().getAlgorithmName();
+    private static final String CHAIN = "delta+rle+huffman";
+
+    @TempDir
+    Path dir;
+
+    private Path write(String name, byte[] data) throws IOException {
+        Path path = dir.resolve(name);
+        Files.createDirectories(path.getParent());
+        return Files.write(path, data);
+    }
+
+    private static List<String> names(List<ArchiveEntry> entries) {
+        List<String> names = new ArrayList<>();
+        for (ArchiveEntry entry : entries) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    // A directory and a file, written with the given algorithm and block size.
+    private Path archive(String algorithmName, int blockSize) throws IOException {
+        write("input/docs/a.txt", TestData.text(30_000, 1));
+        write("input/docs/sub/b.log", TestData.mixed(200_000, 2));
+        write("input/docs/empty", new byte[0]);
+        Path single = write("input/c.bin", TestData.random(5000, 3));
+        FileCompressor compressor = new FileCompressor();
+        compressor.setBlockSize(blockSize);
+        Path archive = dir.resolve("out.bin");
+        EasyArchive.compress(compressor, algorithmName,
+                List.of(dir.resolve("input/docs").toFile(), single.toFile()), archive.toFile());
+        return archive;
+    }
+
+    @Test
+    void directoriesAndFilesRoundTrip() throws IOException {
+        for (int blockSize : new int[] { 0, BlockCompressor.MIN_BLOCK_SIZE }) {
+            Path archive = archive(FileCompressor.AUTO, blockSize);
+            assertEquals(List.of("docs/a.txt", "docs/empty", "docs/sub/b.log", "c.bin"),
+                    names(EasyArchive.list(archive.toFile())));
+            EasyArchive.test(archive.toFile());
+
+            Path output = dir.resolve("output-" + blockSize);
+            List<File> restored = EasyArchive.extract(archive.toFile(), output.toFile());
+            assertEquals(4, restored.size());
+            for (String name : List.of("docs/a.txt", "docs/empty", "docs/sub/b.log")) {
+                assertArrayEquals(Files.readAllBytes(dir.resolve("input").resolve(name)),
+                        Files.readAllBytes(output.resolve(name)), name);
+            }
+            assertArrayEquals(Files.readAllBytes(dir.resolve("input/c.bin")),
+                    Files.readAllBytes(output.resolve("c.bin")));
+            Files.delete(archive);
+        }
+    }
+
+    @Test
+    void everyRegisteredAlgorithmWritesEntries() throws IOException {
+        for (CompressionAlgorithm algorithm : AlgorithmRegistry.getDefault().getAlgorithms()) {
+            Path archive = archive(algorithm.getAlgorithmName(), 0);
+            EasyArchive.test(archive.toFile());
+            Files.delete(archive);
+        }
+    }
+
+    @Test
+    void duplicateNamesAreRejectedBeforeWriting() throws IOException {
+        Path first = write("one/x.txt", new byte[] { 1 });
+        Path second = write("two/x.txt", new byte[] { 2 });
+        Path archive = dir.resolve("dup.bin");
+        assertThrows(IllegalArgumentException.class, () -> EasyArchive.compress(new FileCompressor(),
+                HUFFMAN, List.of(first.toFile(), second.toFile()), archive.toFile()));
+        assertFalse(Files.exists(archive));
+        assertThrows(IllegalArgumentException.class, () -> new FileCompressor().compress(HUFFMAN,
+                List.of(first.toFile(), second.toFile()), archive.toString()));
+        assertFalse(Files.exists(archive));
+
+        // As directories the two files are one/x.txt and two/x.txt.
+        EasyArchive.compress(new FileCompressor(), HUFFMAN,
+                List.of(dir.resolve("one").toFile(), dir.resolve("two").toFile()), archive.toFile());
+        assertEquals(List.of("one/x.txt", "two/x.txt"), names(EasyArchive.list(archive.toFile())));
+    }
+
+    @Test
+    void writerRejectsInvalidAndDuplicateNames() throws IOException {
+        try (ArchiveWriter writer = new ArchiveWriter(OutputStream.nullOutputStream())) {
+            FileCompressor compressor = new FileCompressor();
+            Path file = write("f.txt", TestData.text(100, 4));
+            compressor.compress(HUFFMAN, file.toFile(), "a/f.txt", writer);
+            for (String name : List.of("", "/abs", "a//b", "../up", "a/./b", "a\\b", "a/")) {
+                assertThrows(IllegalArgumentException.class,
+                        () -> compressor.compress(HUFFMAN, file.toFile(), name, writer), name);
+            }
+            assertThrows(IllegalArgumentException.class,
+                    () -> compressor.compress(HUFFMAN, file.toFile(), "a/f.txt", writer));
+            assertEquals(1, writer.getEntries().size());
+        }
+    }
+
+    @Test
+    void extractNeverOverwrites() throws IOException {
+        Path archive = archive(HUFFMAN, 0);
+        Path output = dir.resolve("output");
+        EasyArchive.extract(archive.toFile(), output.toFile());
+        Files.write(output.resolve("c.bin"), new byte[] { 9 });
+        Files.delete(output.resolve("docs/a.txt"));
+        assertThrows(IOException.class, () -> EasyArchive.extract(archive.toFile(), output.toFile()));
+        assertArrayEquals(new byte[] { 9 }, Files.readAllBytes(output.resolve("c.bin")));
+    }
+
+    // Names are checked again on extraction, since an archive may not come
+    // from ArchiveWriter.
+    @Test
+    void unsafeNamesAreNotExtracted() throws IOException {
+        Path file = write("abcdef", TestData.text(1000, 5));
+        Path archive = dir.resolve("unsafe.bin");
+        EasyArchive.compress(new FileCompressor(), HUFFMAN, List.of(file.toFile()), archive.toFile());
+        for (String name : List.of("../abc", "/abcde", "a//def")) {
+            byte[] patched = replaceAll(Files.readAllBytes(archive), "abcdef", name);
+            Path patchedArchive = write("patched.bin", patched);
+            Path output = dir.resolve("output");
+            assertThrows(IOException.class, () -> EasyArchive.extract(patchedArchive.toFile(), output.toFile()), name);
+            assertFalse(Files.exists(dir.resolve("abc")));
+        }
+    }
+
+    @Test
+    void corruptDataFailsTheTest() throws IOException {
+        for (String algorithmName : List.of(STORE, HUFFMAN)) {
+            Path archive = archive(algorithmName, 0);
+            ArchiveEntry entry = EasyArchive.list(archive.toFile()).get(0);
+            byte[] data = Files.readAllBytes(archive);
+            data[(int) (entry.getOffset() + entry.getCompressedSize() / 2)] ^= 1;
+            Files.write(archive, data);
+            assertThrows(IOException.class, () -> EasyArchive.test(archive.toFile()), algorithmName);
+            Files.delete(archive);
+        }
+    }
+
+    @Test
+    void truncatedArchivesFail() throws IOException {
+        Path archive = archive(LZSS, 0);
+        byte[] data = Files.readAllBytes(archive);
+        Path truncated = dir.resolve("truncated.bin");
+        for (int length = 0; length < data.length; length += 1 + length / 16) {
+            Files.write(truncated, Arrays.copyOf(data, length));
+            assertThrows(IOException.class, () -> EasyArchive.test(truncated.toFile()), "length " + length);
+        }
+    }
+
+    // The trailer is directory offset, entry count and end magic.
+    @Test
+    void badDirectoriesFail() throws IOException {
+        Path archive = archive(HUFFMAN, 0);
+        byte[] data = Files.readAllBytes(archive);
+        int trailer = data.length - ArchiveWriter.TRAILER_SIZE;
+        long directoryOffset = ByteBuffer.wrap(data).getLong(trailer);
+
+        List<byte[]> damaged = new ArrayList<>();
+        damaged.add(data.clone());
+        ByteBuffer.wrap(damaged.get(0)).putInt(trailer + 8, Integer.MAX_VALUE);
+        damaged.add(data.clone());
+        ByteBuffer.wrap(damaged.get(1)).putInt(trailer + 8, -1);
+        damaged.add(data.clone());
+        ByteBuffer.wrap(damaged.get(2)).putLong(trailer, data.length);
+        damaged.add(data.clone());
+        ByteBuffer.wrap(damaged.get(3)).putInt(trailer + 12, 0);
+        damaged.add(data.clone());
+        ByteBuffer.wrap(damaged.get(4)).putInt(0, 0);
+        // The first entry's offset, the last field of its directory record.
+        int firstNameLength = ByteBuffer.wrap(data).getShort((int) directoryOffset);
+        int firstOffset = (int) directoryOffset + 2 + firstNameLength + 1 + 1 + 8 + 8 + 4;
+        damaged.add(data.clone());
+        ByteBuffer.wrap(damaged.get(5)).putLong(firstOffset, directoryOffset);
+        damaged.add(data.clone());
+        ByteBuffer.wrap(damaged.get(6)).putLong(firstOffset, Long.MAX_VALUE);
+
+        Path patched = dir.resolve("patched.bin");
+        for (int i = 0; i < damaged.size(); i++) {
+            Files.write(patched, damaged.get(i));
+            assertThrows(IOException.class, () -> EasyArchive.list(patched.toFile()), "case " + i);
+        }
+    }
+
+    @Test
+    void pipelineEntriesAreNamedByTheirChain() throws IOException {
+        for (int blockSize : new int[] { 0, BlockCompressor.MIN_BLOCK_SIZE }) {
+            Path archive = archive(CHAIN, blockSize);
+            String chainName = CodecPipeline.parse(CHAIN).getAlgorithmName();
+            try (ArchiveReader reader = new ArchiveReader(archive)) {
+                assertEquals(chainName, reader.getAlgorithmName(reader.getEntry("docs/a.txt")));
+                // An empty block stream has no block to hold the header.
+                assertEquals(blockSize > 0 ? "Pipeline" : chainName,
+                        reader.getAlgorithmName(reader.getEntry("docs/empty")));
+            }
+            Files.delete(archive);
+        }
+    }
+
+    @Test
+    void rangesExtractFromEveryKindOfEntry() throws IOException {
+        for (String algorithmName : List.of(STORE, LZSS)) {
+            for (int blockSize : new int[] { 0, BlockCompressor.MIN_BLOCK_SIZE }) {
+                Path archive = archive(algorithmName, blockSize);
+                byte[] original = Files.readAllBytes(dir.resolve("input/docs/sub/b.log"));
+                try (ArchiveReader reader = new ArchiveReader(archive)) {
+                    ArchiveEntry entry = reader.getEntry("docs/sub/b.log");
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    reader.extract(entry, 70_000, 100_000, output);
+                    assertArrayEquals(Arrays.copyOfRange(original, 70_000, 170_000), output.toByteArray(),
+                            algorithmName + " " + blockSize);
+                    assertThrows(IndexOutOfBoundsException.class,
+                            () -> reader.extract(entry, original.length, 1, OutputStream.nullOutputStream()));
+                }
+                Files.delete(archive);
+            }
+        }
+    }
+
+    @Test
+    void singleFilesRoundTrip() throws IOException {
+        byte[] data = TestData.mixed(300_000, 6);
+        Path file = write("single.dat", data);
+        for (int blockSize : new int[] { 0, BlockCompressor.MIN_BLOCK_SIZE }) {
+            FileCompressor compressor = new FileCompressor();
+            compressor.setBlockSize(blockSize);
+            Path compressed = dir.resolve("single-" + blockSize + ".bin");
+            compressor.compress(FileCompressor.AUTO, file.toFile(), compressed.toString());
+            Path output = dir.resolve("single-" + blockSize);
+            List<File> restored = EasyArchive.extract(compressed.toFile(), output.toFile());
+            assertEquals(List.of(output.resolve("single.dat").toFile()), restored);
+            assertArrayEquals(data, Files.readAllBytes(output.resolve("single.dat")));
+            assertThrows(IOException.class, () -> EasyArchive.extract(compressed.toFile(), output.toFile()));
+        }
+    }
+
+    // Patches a name in both the local header and the directory; the
+    // replacement has the same length so offsets stay valid.
+    private static byte[] replaceAll(byte[] data, String name, String replacement) {
+        byte[] from = name.getBytes(StandardCharsets.UTF_8);
+        byte[] to = replacement.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + from.length <= data.length; i++) {
+            if (Arrays.equals(data, i, i + from.length, from, 0, from.length)) {
+                System.arraycopy(to, 0, data, i, to.length);
+            }
+        }
+        return data;
+    }
+}
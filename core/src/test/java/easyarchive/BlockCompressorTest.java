@@ -0,0 +1,171 @@
+package easyarchive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class BlockCompressorTest {
+    private static final int BLOCK_SIZE = BlockCompressor.MIN_BLOCK_SIZE;
+    // Five full blocks and a partial one.
+    private static final byte[] DATA = TestData.mixed(5 * BLOCK_SIZE + 1234, 11);
+
+    static List<CompressionAlgorithm> algorithms() {
+        return TestData.algorithms();
+    }
+
+    private static BlockCompressor blocks(CompressionAlgorithm algorithm) {
+        return new BlockCompressor(algorithm, BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    private static byte[] compress(BlockCompressor blocks, byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        blocks.compress(new ByteArrayInputStream(data), output);
+        return output.toByteArray();
+    }
+
+    private static byte[] decompress(BlockCompressor blocks, byte[] compressed) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        blocks.decompress(new ByteArrayInputStream(compressed), output);
+        return output.toByteArray();
+    }
+
+    private static byte[] decompressRange(BlockCompressor blocks, byte[] compressed, long position, long length)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        blocks.decompressRange(ByteBuffer.wrap(compressed), position, length, output);
+        return output.toByteArray();
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void blocksRoundTrip(CompressionAlgorithm algorithm) throws IOException {
+        BlockCompressor blocks = blocks(algorithm);
+        byte[] compressed = compress(blocks, DATA);
+        assertArrayEquals(DATA, decompress(blocks, compressed));
+        long bound = blocks.maxCompressedLength(DATA.length);
+        if (bound >= 0) {
+            assertTrue(compressed.length <= bound, compressed.length + " > " + bound);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void rangesDecodeOnlyTheirSlice(CompressionAlgorithm algorithm) throws IOException {
+        BlockCompressor blocks = blocks(algorithm);
+        byte[] compressed = compress(blocks, DATA);
+        long[][] ranges = {
+                { 0, 0 }, { 0, 1 }, { 0, DATA.length }, { 10, 100 },
+                // Ending on, starting on, and spanning block boundaries.
+                { BLOCK_SIZE - 100, 100 }, { BLOCK_SIZE, 100 }, { BLOCK_SIZE - 1, 2 },
+                { BLOCK_SIZE / 2, 3L * BLOCK_SIZE }, { DATA.length - 1, 1 }, { 5L * BLOCK_SIZE, 1234 } };
+        for (long[] range : ranges) {
+            int from = (int) range[0];
+            byte[] expected = Arrays.copyOfRange(DATA, from, from + (int) range[1]);
+            assertArrayEquals(expected, decompressRange(blocks, compressed, range[0], range[1]),
+                    range[0] + "+" + range[1]);
+        }
+    }
+
+    @Test
+    void emptyInputHasNoBlocks() throws IOException {
+        BlockCompressor blocks = blocks(new HuffmanCompressionAlgorithm());
+        byte[] compressed = compress(blocks, new byte[0]);
+        // Block size, end marker, and the empty index's count and offset.
+        assertEquals(4 + 4 + 12, compressed.length);
+        assertEquals(0, decompress(blocks, compressed).length);
+        assertEquals(0, decompressRange(blocks, compressed, 0, 0).length);
+    }
+
+    // Decoding uses the block size from the stream, not the instance's.
+    @Test
+    void decoderReadsTheStoredBlockSize() throws IOException {
+        CompressionAlgorithm algorithm = new LZSSCompressionAlgorithm();
+        byte[] compressed = compress(new BlockCompressor(algorithm, 2 * BLOCK_SIZE, ForkJoinPool.commonPool()), DATA);
+        assertArrayEquals(DATA, decompress(blocks(algorithm), compressed));
+    }
+
+    @Test
+    void badBlockSizesAndLengthsAreRejected() throws IOException {
+        BlockCompressor blocks = blocks(new HuffmanCompressionAlgorithm());
+        byte[] compressed = compress(blocks, DATA);
+
+        for (int blockSize : new int[] { 0, BlockCompressor.MIN_BLOCK_SIZE - 1, BlockCompressor.MAX_BLOCK_SIZE + 1 }) {
+            byte[] damaged = compressed.clone();
+            ByteBuffer.wrap(damaged).putInt(0, blockSize);
+            assertThrows(IOException.class, () -> decompress(blocks, damaged), "block size " + blockSize);
+        }
+        for (int length : new int[] { -1, BLOCK_SIZE + 1 }) {
+            byte[] damaged = compressed.clone();
+            ByteBuffer.wrap(damaged).putInt(4, length);
+            assertThrows(IOException.class, () -> decompress(blocks, damaged), "block length " + length);
+        }
+        // A compressed length past the algorithm's bound is refused before
+        // anything is allocated for it.
+        byte[] damaged = compressed.clone();
+        ByteBuffer.wrap(damaged).putInt(8, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> decompress(blocks, damaged));
+    }
+
+    @Test
+    void badIndexesAreRejected() throws IOException {
+        BlockCompressor blocks = blocks(new RunLengthCompressionAlgorithm());
+        byte[] compressed = compress(blocks, DATA);
+        int end = compressed.length;
+        ByteBuffer stream = ByteBuffer.wrap(compressed);
+        int indexOffset = (int) stream.getLong(end - 8);
+
+        assertThrows(IOException.class, () -> decompressRange(blocks, new byte[12], 0, 0));
+        assertThrows(IOException.class, () -> decompressRange(blocks, Arrays.copyOf(compressed, end - 1), 0, 1));
+
+        byte[] badCount = compressed.clone();
+        ByteBuffer.wrap(badCount).putInt(end - 12, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> decompressRange(blocks, badCount, 0, 1));
+
+        byte[] badOffset = compressed.clone();
+        ByteBuffer.wrap(badOffset).putLong(end - 8, -1);
+        assertThrows(IOException.class, () -> decompressRange(blocks, badOffset, 0, 1));
+
+        // First index record: block offset, original length, compressed length.
+        byte[] blockOutOfBounds = compressed.clone();
+        ByteBuffer.wrap(blockOutOfBounds).putLong(indexOffset, indexOffset);
+        assertThrows(IOException.class, () -> decompressRange(blocks, blockOutOfBounds, 0, 1));
+
+        byte[] badCompressedLength = compressed.clone();
+        ByteBuffer.wrap(badCompressedLength).putInt(indexOffset + 12, -1);
+        assertThrows(IOException.class, () -> decompressRange(blocks, badCompressedLength, 0, 1));
+
+        byte[] wrongLength = compressed.clone();
+        ByteBuffer.wrap(wrongLength).putInt(indexOffset + 8, BLOCK_SIZE - 1);
+        assertThrows(IOException.class, () -> decompressRange(blocks, wrongLength, 0, 1));
+    }
+
+    // Blocks decode in parallel; a failing block must not leave the caller
+    // waiting on later ones.
+    @Test
+    void corruptMiddleBlockFails() throws IOException {
+        BlockCompressor blocks = blocks(new ArithmeticCompressionAlgorithm());
+        byte[] compressed = compress(blocks, DATA);
+        int indexOffset = (int) ByteBuffer.wrap(compressed).getLong(compressed.length - 8);
+        long thirdBlock = ByteBuffer.wrap(compressed).getLong(indexOffset + 2 * 16);
+        byte[] damaged = compressed.clone();
+        // The third block's coded length, inside its order-0 header.
+        ByteBuffer.wrap(damaged).putInt((int) thirdBlock + 8 + 5, -1);
+        assertThrows(IOException.class, () -> blocks.decompress(new ByteArrayInputStream(damaged),
+                OutputStream.nullOutputStream()));
+        assertThrows(IOException.class, () -> decompressRange(blocks, damaged, 0, DATA.length));
+    }
+}
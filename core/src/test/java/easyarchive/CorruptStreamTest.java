@@ -0,0 +1,246 @@
+package easyarchive;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+// Damaged input must end in an IOException, never in another exception or a
+// huge allocation.
+class CorruptStreamTest {
+    // Stored data has no framing, so a truncated stream is just shorter data.
+    static List<CompressionAlgorithm> framedAlgorithms() {
+        return TestData.algorithms().stream()
+                .filter(algorithm -> !(algorithm instanceof StoredCompressionAlgorithm))
+                .collect(Collectors.toList());
+    }
+
+    static List<CompressionAlgorithm> algorithms() {
+        return TestData.algorithms();
+    }
+
+    @ParameterizedTest
+    @MethodSource("framedAlgorithms")
+    void everyTruncationFails(CompressionAlgorithm algorithm) throws IOException {
+        byte[] compressed = TestData.compress(algorithm, TestData.mixed(3000, 1));
+        for (int length = 0; length < compressed.length; length++) {
+            byte[] truncated = Arrays.copyOf(compressed, length);
+            assertThrows(IOException.class, () -> TestData.decompress(algorithm, truncated), "length " + length);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("framedAlgorithms")
+    void truncatedBlockStreamsFail(CompressionAlgorithm algorithm) throws IOException {
+        BlockCompressor blocks = new BlockCompressor(algorithm, BlockCompressor.MIN_BLOCK_SIZE, ForkJoinPool.commonPool());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        blocks.compress(new ByteArrayInputStream(TestData.mixed(150_000, 2)), output);
+        byte[] compressed = output.toByteArray();
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            byte[] truncated = Arrays.copyOf(compressed, random.nextInt(compressed.length));
+            assertThrows(IOException.class, () -> blocks.decompress(new ByteArrayInputStream(truncated),
+                    OutputStream.nullOutputStream()));
+        }
+    }
+
+    // Flipped bytes either still decode (to something) or fail with an
+    // IOException; headers are hit more often than their share of the stream.
+    @ParameterizedTest
+    @MethodSource("algorithms")
+    void flippedBytesFailCleanly(CompressionAlgorithm algorithm) throws IOException {
+        byte[] compressed = TestData.compress(algorithm, TestData.mixed(100_000, 4));
+        BlockCompressor blocks = new BlockCompressor(algorithm, BlockCompressor.MIN_BLOCK_SIZE, ForkJoinPool.commonPool());
+        ByteArrayOutputStream blockOutput = new ByteArrayOutputStream();
+        blocks.compress(new ByteArrayInputStream(TestData.mixed(150_000, 4)), blockOutput);
+        byte[] blockCompressed = blockOutput.toByteArray();
+
+        Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            boolean blockMode = i % 2 == 1;
+            byte[] damaged = (blockMode ? blockCompressed : compressed).clone();
+            int range = i % 4 < 2 ? Math.min(64, damaged.length) : damaged.length;
+            for (int flips = 1 + random.nextInt(4); flips > 0; flips--) {
+                damaged[random.nextInt(range)] ^= (byte) (1 + random.nextInt(255));
+            }
+            try {
+                if (blockMode) {
+                    blocks.decompress(new ByteArrayInputStream(damaged), OutputStream.nullOutputStream());
+                } else {
+                    algorithm.decompress(new ByteArrayInputStream(damaged), OutputStream.nullOutputStream());
+                }
+            } catch (IOException expected) {
+                // Detected.
+            } catch (RuntimeException | OutOfMemoryError e) {
+                fail("case " + i + (blockMode ? " (blocks)" : "") + " threw " + e, e);
+            }
+        }
+    }
+
+    @Test
+    void pipelineHeaderIsChecked() {
+        int pipeline = new CodecPipeline().getAlgorithmId();
+        CompressionAlgorithm decoder = AlgorithmRegistry.getDefault().get(pipeline);
+        int huffman = new HuffmanCompressionAlgorithm().getAlgorithmId();
+        List<byte[]> headers = List.of(
+                new byte[] { (byte) (CodecPipeline.MAX_TRANSFORMS + 1) },
+                new byte[] { 1, (byte) 200, (byte) huffman, 0, 1, 0, 0 },
+                new byte[] { 0, (byte) 250, 0, 1, 0, 0 },
+                new byte[] { 0, (byte) pipeline, 0, 1, 0, 0 },
+                new byte[] { 0, (byte) new BWTCompressionAlgorithm().getAlgorithmId(), 0, 1, 0, 0 },
+                new byte[] { 0, (byte) huffman, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF },
+                new byte[] { 0, (byte) huffman, 0x7F, 0, 0, 0 });
+        for (byte[] header : headers) {
+            assertThrows(IOException.class, () -> TestData.decompress(decoder, header), Arrays.toString(header));
+        }
+    }
+
+    @Test
+    void pipelineStageLengthsAreChecked() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeByte(1);
+        output.writeByte(Transform.forName("rle").getTransformId());
+        output.writeByte(new HuffmanCompressionAlgorithm().getAlgorithmId());
+        output.writeInt(1000);
+        output.writeInt(1000);
+        output.writeInt(Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> TestData.decompress(new CodecPipeline(), stream.toByteArray()));
+    }
+
+    @Test
+    void unknownAlgorithmIdsAreIOExceptions() {
+        assertThrows(IOException.class, () -> AlgorithmRegistry.getDefault().getStored(250));
+        byte[] bwt = { (byte) 250, 0, 1, 0, 0, 0, 0, 0, 0 };
+        assertThrows(IOException.class, () -> TestData.decompress(new BWTCompressionAlgorithm(), bwt));
+    }
+
+    // A first code must be a byte and later codes at most the next free one.
+    @Test
+    void lzwRejectsCodesOutsideTheDictionary() throws IOException {
+        for (int[] codes : new int[][] { { 300 }, { 'a', 400 } }) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            BitWriter writer = new BitWriter(stream);
+            for (int code : codes) {
+                writer.writeBits(code, LZWCompressionAlgorithm.MIN_CODE_WIDTH);
+            }
+            writer.writeBits(LZWCompressionAlgorithm.END_CODE, LZWCompressionAlgorithm.MIN_CODE_WIDTH);
+            writer.flush();
+            assertThrows(IOException.class, () -> TestData.decompress(new LZWCompressionAlgorithm(), stream.toByteArray()));
+        }
+    }
+
+    // A zero run past the alphabet, lengths that overflow the Kraft sum, and a
+    // table with no codes at all.
+    @Test
+    void huffmanRejectsBadCodeLengthTables() throws IOException {
+        int[][] tables = new int[3][];
+        tables[0] = new int[41];
+        tables[0][0] = 8;
+        for (int i = 1; i < tables[0].length; i += 2) {
+            tables[0][i] = 0;
+            tables[0][i + 1] = 15;
+        }
+        tables[1] = new int[256];
+        Arrays.fill(tables[1], 1);
+        tables[2] = new int[32];
+        for (int i = 0; i < tables[2].length; i += 2) {
+            tables[2][i + 1] = 15;
+        }
+        for (int[] nibbles : tables) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            BitWriter writer = new BitWriter(stream);
+            writer.writeBits(10, 32);
+            for (int nibble : nibbles) {
+                writer.writeBits(nibble, 4);
+            }
+            writer.writeBits(0, 32);
+            writer.flush();
+            assertThrows(IOException.class, () -> TestData.decompress(new HuffmanCompressionAlgorithm(), stream.toByteArray()));
+        }
+    }
+
+    // Header varints, then tokens running past the block or the coded data.
+    @Test
+    void runLengthRejectsBadVarintsAndRuns() throws IOException {
+        List<byte[]> streams = List.of(
+                new byte[] { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1 },
+                new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x7F, 1 },
+                new byte[] { 4, 2, 5, 'x', 0 },
+                new byte[] { 4, 3, 6, 'a', 'b', 0 },
+                new byte[] { 4, 1, (byte) 0x80 });
+        for (byte[] stream : streams) {
+            assertThrows(IOException.class, () -> TestData.decompress(new RunLengthCompressionAlgorithm(), stream),
+                    Arrays.toString(stream));
+        }
+    }
+
+    // The order-0 frequency table has to sum to the coder's total.
+    @Test
+    void rangeCoderRejectsBadFrequencyTables() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeByte(0);
+        output.writeInt(10);
+        output.writeInt(4);
+        byte[] present = new byte[32];
+        present[0] = (byte) 0x80;
+        output.write(present);
+        output.writeShort(1000);
+        output.writeInt(0);
+        output.writeInt(0);
+        assertThrows(IOException.class, () -> TestData.decompress(new ArithmeticCompressionAlgorithm(), stream.toByteArray()));
+
+        byte[] badOrder = { 9, 0, 0, 0, 0 };
+        assertThrows(IOException.class, () -> TestData.decompress(new ArithmeticCompressionAlgorithm(), badOrder));
+    }
+
+    // Stream-format blocks of array-only codecs carry their compressed length.
+    @Test
+    void arrayCodecBlockLengthsAreChecked() throws IOException {
+        CompressionAlgorithm arrayOnly = new ArrayOnlyAlgorithm();
+        for (int length : new int[] { -1, Integer.MAX_VALUE }) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(stream);
+            output.writeInt(10);
+            output.writeInt(length);
+            assertThrows(IOException.class, () -> TestData.decompress(arrayOnly, stream.toByteArray()));
+        }
+    }
+
+    // A codec with only the array methods, like a third-party plugin.
+    private static class ArrayOnlyAlgorithm implements CompressionAlgorithm {
+        @Override
+        public byte[] compress(byte[] input) {
+            return input.clone();
+        }
+
+        @Override
+        public byte[] decompress(byte[] compressed) {
+            return compressed.clone();
+        }
+
+        @Override
+        public String getAlgorithmName() {
+            return "Array only";
+        }
+
+        @Override
+        public int getAlgorithmId() {
+            return 200;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package easyarchive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic inputs and codec helpers shared by the tests.
+final class TestData {
+    private static final String[] WORDS = {
+            "the", "archive", "block", "entry", "compressed", "stream", "of", "and", "a", "to",
+            "2024-05-01T12:00:00Z", "INFO", "WARN", "request", "id=", "took", "ms\n", ", ", ". "
+    };
+
+    private TestData() {
+    }
+
+    // Every registered algorithm plus the configurations that change the format.
+    static List<CompressionAlgorithm> algorithms() {
+        List<CompressionAlgorithm> algorithms = new ArrayList<>(AlgorithmRegistry.getDefault().getAlgorithms());
+        algorithms.add(new ArithmeticCompressionAlgorithm(1));
+        algorithms.add(new ArithmeticCompressionAlgorithm(2));
+        algorithms.add(new LZSSCompressionAlgorithm(LZSSCompressionAlgorithm.MIN_LEVEL));
+        algorithms.add(new LZSSCompressionAlgorithm(LZSSCompressionAlgorithm.MAX_LEVEL));
+        algorithms.add(CodecPipeline.parse("delta+rle+huffman"));
+        algorithms.add(CodecPipeline.parse("bwt+mtf+zrle+arithmetic"));
+        return algorithms;
+    }
+
+    static byte[] text(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 32);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? random.nextInt(1000) : "");
+        }
+        return text.substring(0, length).getBytes();
+    }
+
+    static byte[] random(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    // Text with random stretches, so every codec meets both.
+    static byte[] mixed(int length, long seed) {
+        byte[] data = text(length, seed);
+        Random random = new Random(seed);
+        for (int start = 0; start < length; start += 8192 + random.nextInt(8192)) {
+            byte[] noise = random(Math.min(1024, length - start), seed + start);
+            System.arraycopy(noise, 0, data, start, noise.length);
+        }
+        return data;
+    }
+
+    static byte[] compress(CompressionAlgorithm algorithm, byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        algorithm.compress(new ByteArrayInputStream(data), output);
+        return output.toByteArray();
+    }
+
+    static byte[] decompress(CompressionAlgorithm algorithm, byte[] compressed) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        algorithm.decompress(new ByteArrayInputStream(compressed), output);
+        return output.toByteArray();
+    }
+}
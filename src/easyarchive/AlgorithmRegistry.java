@@ -0,0 +1,116 @@
+package easyarchive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+
+// Algorithms by the id recorded in compressed output. Providers are found with
+// ServiceLoader once per process and each algorithm is instantiated once;
+// callers share the instances. The built-in provider is added directly when
+// the service file is missing from the class path (e.g. running from an IDE
+// that doesn't copy resources).
+class AlgorithmRegistry {
+    private static final int MAX_ID = 255;
+    private static final AlgorithmRegistry DEFAULT = load();
+
+    private final CompressionAlgorithm[] byId = new CompressionAlgorithm[MAX_ID + 1];
+    private final List<CompressionAlgorithm> algorithms = new ArrayList<>();
+
+    static AlgorithmRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    private static AlgorithmRegistry load() {
+        AlgorithmRegistry registry = new AlgorithmRegistry();
+        boolean builtinFound = false;
+        for (CompressionAlgorithmProvider provider : ServiceLoader.load(CompressionAlgorithmProvider.class)) {
+            builtinFound |= provider instanceof BuiltinAlgorithmProvider;
+            registry.registerAll(provider);
+        }
+        if (!builtinFound) {
+            registry.registerAll(new BuiltinAlgorithmProvider());
+        }
+        return registry;
+    }
+
+    private void registerAll(CompressionAlgorithmProvider provider) {
+        for (CompressionAlgorithm algorithm : provider.getAlgorithms()) {
+            int id = algorithm.getAlgorithmId();
+            if (id < 0 || id > MAX_ID) {
+                throw new IllegalStateException(algorithm.getAlgorithmName() + " has an out of range id: " + id);
+            }
+            if (byId[id] != null) {
+                throw new IllegalStateException("Algorithm id " + id + " is used by both "
+                        + byId[id].getAlgorithmName() + " and " + algorithm.getAlgorithmName());
+            }
+            byId[id] = algorithm;
+            algorithms.add(algorithm);
+        }
+    }
+
+    CompressionAlgorithm get(int algorithmId) {
+        CompressionAlgorithm algorithm = algorithmId >= 0 && algorithmId <= MAX_ID ? byId[algorithmId] : null;
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unknown algorithm id: " + algorithmId);
+        }
+        return algorithm;
+    }
+
+    // For ids read from compressed data, where an unknown one means the data is
+    // corrupt or was made with a codec that isn't installed.
+    CompressionAlgorithm getStored(int algorithmId) throws IOException {
+        CompressionAlgorithm algorithm = algorithmId >= 0 && algorithmId <= MAX_ID ? byId[algorithmId] : null;
+        if (algorithm == null) {
+            throw new IOException("Unknown algorithm id " + algorithmId + " in compressed data");
+        }
+        return algorithm;
+    }
+
+    CompressionAlgorithm get(String algorithmName) {
+        for (CompressionAlgorithm algorithm : algorithms) {
+            if (algorithm.getAlgorithmName().equals(algorithmName)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Invalid algorithm name: " + algorithmName);
+    }
+
+    // Looks up a numeric id, a name ignoring case, or a prefix of exactly one
+    // name, e.g. "6", "huffman" or "lempel".
+    CompressionAlgorithm find(String query) {
+        if (!query.isEmpty() && query.chars().allMatch(Character::isDigit)) {
+            return get(Integer.parseInt(query));
+        }
+        String prefix = query.toLowerCase(Locale.ROOT);
+        List<CompressionAlgorithm> matches = new ArrayList<>();
+        for (CompressionAlgorithm algorithm : algorithms) {
+            if (algorithm.getAlgorithmName().equalsIgnoreCase(query)) {
+                return algorithm;
+            }
+            if (!prefix.isEmpty() && algorithm.getAlgorithmName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                matches.add(algorithm);
+            }
+        }
+        if (matches.size() != 1) {
+            throw new IllegalArgumentException("Unknown or ambiguous algorithm: " + query);
+        }
+        return matches.get(0);
+    }
+
+    boolean contains(String algorithmName) {
+        for (CompressionAlgorithm algorithm : algorithms) {
+            if (algorithm.getAlgorithmName().equals(algorithmName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // In registration order, built-in algorithms first.
+    List<CompressionAlgorithm> getAlgorithms() {
+        return Collections.unmodifiableList(algorithms);
+    }
+}
@@ -0,0 +1,121 @@
+package easyarchive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+// Picks an algorithm for a file from a sample of it. Up to SAMPLE_COUNT chunks
+// are read from evenly spaced offsets; data that already looks random is
+// stored without further work, otherwise each candidate compresses the sample
+// and the smallest result wins. Store is chosen whenever no candidate saves
+// at least MIN_SAVING of the sample.
+class AlgorithmSelector {
+    static final int SAMPLE_COUNT = 8;
+    static final int SAMPLE_SIZE = 32 << 10;
+    static final double MIN_SAVING = 0.02;
+    // Order-0 entropy (bits per byte) above which a sample without runs is
+    // treated as incompressible.
+    static final double RANDOM_ENTROPY = 7.9;
+    static final double RANDOM_RUN_LENGTH = 1.1;
+
+    private AlgorithmSelector() {
+    }
+
+    static CompressionAlgorithm select(Path file, List<CompressionAlgorithm> candidates) throws IOException {
+        return selectFromSample(readSample(file), candidates);
+    }
+
+    // Same choice for a file that is already in memory, in data[0, length).
+    static CompressionAlgorithm select(byte[] data, int length, List<CompressionAlgorithm> candidates)
+            throws IOException {
+        if (length <= SAMPLE_COUNT * SAMPLE_SIZE) {
+            return selectFromSample(length == data.length ? data : Arrays.copyOf(data, length), candidates);
+        }
+        byte[] sample = new byte[SAMPLE_COUNT * SAMPLE_SIZE];
+        long stride = (length - SAMPLE_SIZE) / (SAMPLE_COUNT - 1);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            System.arraycopy(data, (int) (i * stride), sample, i * SAMPLE_SIZE, SAMPLE_SIZE);
+        }
+        return selectFromSample(sample, candidates);
+    }
+
+    private static CompressionAlgorithm selectFromSample(byte[] sample, List<CompressionAlgorithm> candidates)
+            throws IOException {
+        if (sample.length == 0) {
+            return AlgorithmRegistry.getDefault().get(0);
+        }
+        if (entropy(sample) > RANDOM_ENTROPY && averageRunLength(sample) < RANDOM_RUN_LENGTH) {
+            return AlgorithmRegistry.getDefault().get(0);
+        }
+
+        CompressionAlgorithm best = AlgorithmRegistry.getDefault().get(0);
+        long bestLength = (long) (sample.length * (1 - MIN_SAVING));
+        for (CompressionAlgorithm candidate : candidates) {
+            int length = candidate.compress(sample).length;
+            if (length < bestLength) {
+                best = candidate;
+                bestLength = length;
+            }
+        }
+        return best;
+    }
+
+    // Small files are sampled whole; larger ones as SAMPLE_COUNT chunks spread
+    // from the start to the end of the file and joined into one buffer.
+    static byte[] readSample(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int sampleLength = (int) Math.min(size, (long) SAMPLE_COUNT * SAMPLE_SIZE);
+            ByteBuffer sample = ByteBuffer.allocate(sampleLength);
+            if (sampleLength == size) {
+                readFully(channel, sample, 0);
+            } else {
+                long stride = (size - SAMPLE_SIZE) / (SAMPLE_COUNT - 1);
+                for (int i = 0; i < SAMPLE_COUNT; i++) {
+                    sample.limit(Math.min(sample.capacity(), sample.position() + SAMPLE_SIZE));
+                    readFully(channel, sample, i * stride);
+                }
+            }
+            // A file that shrank while being sampled leaves the tail unfilled.
+            byte[] data = sample.array();
+            return sample.position() == data.length ? data : Arrays.copyOf(data, sample.position());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    static double entropy(byte[] data) {
+        int[] counts = new int[256];
+        ByteHistogram.count(data, 0, data.length, counts);
+        double bits = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / data.length;
+                bits -= p * Math.log(p);
+            }
+        }
+        return bits / Math.log(2);
+    }
+
+    static double averageRunLength(byte[] data) {
+        int runs = 1;
+        for (int i = 1; i < data.length; i++) {
+            if (data[i] != data[i - 1]) {
+                runs++;
+            }
+        }
+        return (double) data.length / runs;
+    }
+}
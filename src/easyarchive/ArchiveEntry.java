@@ -0,0 +1,57 @@
+package easyarchive;
+
+// Central directory record for one file in an archive.
+public class ArchiveEntry {
+    static final int FLAG_BLOCKS = 1;
+
+    private final String name;
+    private final int algorithmId;
+    private final int flags;
+    private final long originalSize;
+    private final long compressedSize;
+    private final int crc;
+    private final long offset;
+
+    ArchiveEntry(String name, int algorithmId, int flags, long originalSize, long compressedSize, int crc, long offset) {
+        this.name = name;
+        this.algorithmId = algorithmId;
+        this.flags = flags;
+        this.originalSize = originalSize;
+        this.compressedSize = compressedSize;
+        this.crc = crc;
+        this.offset = offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAlgorithmId() {
+        return algorithmId;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isBlockCompressed() {
+        return (flags & FLAG_BLOCKS) != 0;
+    }
+
+    public long getOriginalSize() {
+        return originalSize;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public int getCrc() {
+        return crc;
+    }
+
+    // Position of the entry's compressed data from the start of the archive.
+    public long getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,323 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Reads archives written by ArchiveWriter. Only the trailer and the central
+// directory are read up front. An entry's compressed bytes are memory-mapped and
+// decoded straight from the mapping, so extracting one entry never reads the
+// rest of the archive; stored entries are copied without passing through the
+// heap at all.
+class ArchiveReader implements Closeable {
+    private static final int HEADER_SIZE = 5;
+    // A record with an empty name: name length, id, flags, two sizes, CRC-32
+    // and offset.
+    private static final int MIN_DIRECTORY_ENTRY_SIZE = 2 + 1 + 1 + 8 + 8 + 4 + 8;
+
+    private final FileChannel channel;
+    private final List<ArchiveEntry> entries;
+
+    ArchiveReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.entries = readDirectory();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private List<ArchiveEntry> readDirectory() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + ArchiveWriter.TRAILER_SIZE) {
+            throw new IOException("Not an archive: file is too short");
+        }
+        ByteBuffer header = read(0, HEADER_SIZE);
+        if (header.getInt() != ArchiveWriter.MAGIC) {
+            throw new IOException("Not an archive: bad magic number");
+        }
+        int version = header.get() & 0xFF;
+        if (version != ArchiveWriter.VERSION) {
+            throw new IOException("Unsupported archive version: " + version);
+        }
+
+        ByteBuffer trailer = read(size - ArchiveWriter.TRAILER_SIZE, ArchiveWriter.TRAILER_SIZE);
+        long directoryOffset = trailer.getLong();
+        int entryCount = trailer.getInt();
+        if (trailer.getInt() != ArchiveWriter.END_MAGIC) {
+            throw new IOException("Corrupt archive: missing trailer");
+        }
+        long directoryEnd = size - ArchiveWriter.TRAILER_SIZE;
+        if (directoryOffset < HEADER_SIZE || directoryOffset > directoryEnd
+                || directoryEnd - directoryOffset > Integer.MAX_VALUE || entryCount < 0
+                || entryCount > (directoryEnd - directoryOffset) / MIN_DIRECTORY_ENTRY_SIZE) {
+            throw new IOException("Corrupt archive: bad central directory");
+        }
+
+        DataInputStream directory = new DataInputStream(new ByteBufferInputStream(
+                channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directoryEnd - directoryOffset)));
+        List<ArchiveEntry> result = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            String name = directory.readUTF();
+            int algorithmId = directory.readUnsignedByte();
+            int flags = directory.readUnsignedByte();
+            long originalSize = directory.readLong();
+            long compressedSize = directory.readLong();
+            int crc = directory.readInt();
+            long offset = directory.readLong();
+            if (offset < 0 || compressedSize < 0 || offset > directoryOffset || compressedSize > directoryOffset - offset) {
+                throw new IOException("Corrupt archive: entry " + name + " is out of bounds");
+            }
+            result.add(new ArchiveEntry(name, algorithmId, flags, originalSize, compressedSize, crc, offset));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    ArchiveEntry getEntry(String name) {
+        for (ArchiveEntry entry : entries) {
+            if (entry.getName().equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // Maps an entry's compressed data read-only. For stored entries this is the
+    // original content itself.
+    MappedByteBuffer map(ArchiveEntry entry) throws IOException {
+        if (entry.getCompressedSize() > Integer.MAX_VALUE) {
+            throw new IOException("Entry " + entry.getName() + " is too large to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, entry.getOffset(), entry.getCompressedSize());
+    }
+
+    // Decompresses one entry and verifies its size and CRC-32.
+    void extract(ArchiveEntry entry, OutputStream output) throws IOException {
+        if (isStored(entry)) {
+            ByteBuffer data = map(entry);
+            verifyCrc(entry, data.duplicate());
+            writeTo(data, output);
+            output.flush();
+            return;
+        }
+
+        CompressionAlgorithm algorithm = AlgorithmRegistry.getDefault().getStored(entry.getAlgorithmId());
+        CheckedOutputStream checkedOutput = new CheckedOutputStream(output, new CRC32());
+        CountingOutputStream countingOutput = new CountingOutputStream(checkedOutput);
+
+        InputStream input = openCompressed(entry);
+        if (entry.isBlockCompressed()) {
+            new BlockCompressor(algorithm).decompress(input, countingOutput);
+        } else {
+            algorithm.decompress(input, countingOutput);
+        }
+        countingOutput.flush();
+
+        if (countingOutput.count != entry.getOriginalSize()) {
+            throw new IOException("Corrupt entry " + entry.getName() + ": expected " + entry.getOriginalSize()
+                    + " bytes but got " + countingOutput.count);
+        }
+        if ((int)checkedOutput.getChecksum().getValue() != entry.getCrc()) {
+            throw new IOException("Corrupt entry " + entry.getName() + ": CRC mismatch");
+        }
+    }
+
+    // Creates target, which must not exist yet.
+    void extract(ArchiveEntry entry, Path target) throws IOException {
+        if (isStored(entry)) {
+            verifyCrc(entry, map(entry));
+            try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                long position = 0;
+                while (position < entry.getCompressedSize()) {
+                    position += channel.transferTo(entry.getOffset() + position,
+                            entry.getCompressedSize() - position, targetChannel);
+                }
+            }
+            return;
+        }
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(target, StandardOpenOption.CREATE_NEW))) {
+            extract(entry, output);
+        }
+    }
+
+    // Writes bytes [position, position + length) of an entry's original content.
+    // Stored entries are sliced from the mapping and block-compressed entries
+    // only decode the blocks that overlap the range; other entries have to be
+    // decoded from the start.
+    void extract(ArchiveEntry entry, long position, long length, OutputStream output) throws IOException {
+        if (position < 0 || length < 0 || position + length > entry.getOriginalSize()) {
+            throw new IndexOutOfBoundsException("Range " + position + "+" + length
+                    + " is outside entry " + entry.getName());
+        }
+        if (isStored(entry)) {
+            ByteBuffer data = map(entry);
+            writeTo(data.position((int)position).limit((int)(position + length)), output);
+            output.flush();
+            return;
+        }
+
+        CompressionAlgorithm algorithm = AlgorithmRegistry.getDefault().getStored(entry.getAlgorithmId());
+        if (entry.isBlockCompressed()) {
+            new BlockCompressor(algorithm).decompressRange(map(entry), position, length, output);
+            return;
+        }
+        OutputStream rangeOutput = new OutputStream() {
+            private long offset;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte)b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long start = Math.max(offset, position);
+                long end = Math.min(offset + len, position + length);
+                if (start < end) {
+                    output.write(b, off + (int)(start - offset), (int)(end - start));
+                }
+                offset += len;
+            }
+        };
+        algorithm.decompress(openCompressed(entry), rangeOutput);
+        output.flush();
+    }
+
+    // The name of the algorithm that wrote an entry. All pipelines share one id,
+    // so a pipeline's chain is read from the header at the start of its stream
+    // (inside the first block when block-compressed).
+    String getAlgorithmName(ArchiveEntry entry) throws IOException {
+        CompressionAlgorithm algorithm = AlgorithmRegistry.getDefault().getStored(entry.getAlgorithmId());
+        if (!(algorithm instanceof CodecPipeline)) {
+            return algorithm.getAlgorithmName();
+        }
+        if (entry.isBlockCompressed() && entry.getOriginalSize() == 0) {
+            return "Pipeline";
+        }
+        DataInputStream input = new DataInputStream(openCompressed(entry));
+        if (entry.isBlockCompressed()) {
+            // Block size, then the first block's original and compressed lengths.
+            input.skipNBytes(12);
+        }
+        return CodecPipeline.readHeader(input).getAlgorithmName();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private InputStream openCompressed(ArchiveEntry entry) throws IOException {
+        if (entry.getCompressedSize() > Integer.MAX_VALUE) {
+            return new BufferedInputStream(
+                    new ChannelInputStream(channel, entry.getOffset(), entry.getCompressedSize()));
+        }
+        return new ByteBufferInputStream(map(entry));
+    }
+
+    private static boolean isStored(ArchiveEntry entry) {
+        return entry.getAlgorithmId() == 0 && !entry.isBlockCompressed()
+                && entry.getCompressedSize() <= Integer.MAX_VALUE;
+    }
+
+    private static void verifyCrc(ArchiveEntry entry, ByteBuffer data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int)crc.getValue() != entry.getCrc()) {
+            throw new IOException("Corrupt entry " + entry.getName() + ": CRC mismatch");
+        }
+    }
+
+    private static void writeTo(ByteBuffer data, OutputStream output) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        while (data.hasRemaining()) {
+            int n = Math.min(buffer.length, data.remaining());
+            data.get(buffer, 0, n);
+            output.write(buffer, 0, n);
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+        }
+        return buffer.flip();
+    }
+
+    static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    // Positional reads for entries too large to map in one piece.
+    private static class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        ChannelInputStream(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int)Math.min(len, end - position)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+    }
+}
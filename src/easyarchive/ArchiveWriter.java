@@ -0,0 +1,143 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+// Writes a multi-file archive in a single streaming pass.
+//
+// Layout: magic and version, then per entry a local header (magic, name,
+// algorithm id, flags) followed by the compressed data, then the central
+// directory (name, algorithm id, flags, original size, compressed size, CRC-32
+// and data offset per entry) and a trailer holding the directory offset,
+// the entry count and an end magic.
+class ArchiveWriter implements Closeable {
+    static final int MAGIC = 0x455A4152;
+    static final int LOCAL_MAGIC = 0x455A4C48;
+    static final int END_MAGIC = 0x455A4544;
+    static final int VERSION = 1;
+    static final int TRAILER_SIZE = 16;
+
+    interface EntryEncoder {
+        void encode(InputStream input, OutputStream output) throws IOException;
+    }
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream output;
+    private final List<ArchiveEntry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private boolean closed;
+
+    ArchiveWriter(OutputStream output) throws IOException {
+        this.counter = new CountingOutputStream(new BufferedOutputStream(output));
+        this.output = new DataOutputStream(counter);
+        this.output.writeInt(MAGIC);
+        this.output.writeByte(VERSION);
+    }
+
+    // Data compressed ahead of time, e.g. by CompressionPipeline workers: the
+    // remaining bytes of data, a heap buffer, encode originalSize bytes with the
+    // given CRC-32.
+    static class EncodedEntry {
+        final int algorithmId;
+        final boolean blockCompressed;
+        final long originalSize;
+        final int crc;
+        final ByteBuffer data;
+
+        EncodedEntry(int algorithmId, boolean blockCompressed, long originalSize, int crc, ByteBuffer data) {
+            this.algorithmId = algorithmId;
+            this.blockCompressed = blockCompressed;
+            this.originalSize = originalSize;
+            this.crc = crc;
+            this.data = data;
+        }
+    }
+
+    ArchiveEntry addEntry(String name, int algorithmId, boolean blockCompressed, InputStream input,
+                          EntryEncoder encoder) throws IOException {
+        int flags = blockCompressed ? ArchiveEntry.FLAG_BLOCKS : 0;
+        long offset = writeLocalHeader(name, algorithmId, flags);
+        CountingInputStream countingInput = new CountingInputStream(input);
+        CheckedInputStream checkedInput = new CheckedInputStream(countingInput, new CRC32());
+        encoder.encode(checkedInput, new FilterOutputStream(counter) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
+        output.flush();
+
+        ArchiveEntry entry = new ArchiveEntry(name, algorithmId, flags, countingInput.count,
+                counter.count - offset, (int)checkedInput.getChecksum().getValue(), offset);
+        entries.add(entry);
+        return entry;
+    }
+
+    ArchiveEntry addEntry(String name, EncodedEntry encoded) throws IOException {
+        int flags = encoded.blockCompressed ? ArchiveEntry.FLAG_BLOCKS : 0;
+        long offset = writeLocalHeader(name, encoded.algorithmId, flags);
+        ByteBuffer data = encoded.data;
+        output.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        output.flush();
+
+        ArchiveEntry entry = new ArchiveEntry(name, encoded.algorithmId, flags, encoded.originalSize,
+                data.remaining(), encoded.crc, offset);
+        entries.add(entry);
+        return entry;
+    }
+
+    // Returns the offset of the entry data that follows the header. Names must
+    // be valid EntryNames and unique, since extraction restores entries by name.
+    private long writeLocalHeader(String name, int algorithmId, int flags) throws IOException {
+        if (!EntryNames.isValid(name)) {
+            throw new IllegalArgumentException("Invalid entry name: " + name);
+        }
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("Duplicate entry name: " + name);
+        }
+        output.writeInt(LOCAL_MAGIC);
+        output.writeUTF(name);
+        output.writeByte(algorithmId);
+        output.writeByte(flags);
+        output.flush();
+        return counter.count;
+    }
+
+    List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        output.flush();
+        long directoryOffset = counter.count;
+        for (ArchiveEntry entry : entries) {
+            output.writeUTF(entry.getName());
+            output.writeByte(entry.getAlgorithmId());
+            output.writeByte(entry.getFlags());
+            output.writeLong(entry.getOriginalSize());
+            output.writeLong(entry.getCompressedSize());
+            output.writeInt(entry.getCrc());
+            output.writeLong(entry.getOffset());
+        }
+        output.writeLong(directoryOffset);
+        output.writeInt(entries.size());
+        output.writeInt(END_MAGIC);
+        output.close();
+    }
+}
@@ -0,0 +1,154 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+// Burrows-Wheeler, move-to-front and zero-run coding in front of another
+// algorithm, which then sees long runs of small values instead of text. Blocks
+// are transformed independently on an executor, at most one per core at a
+// time, so memory stays around a dozen times the block size per core.
+//
+// Layout: the inner algorithm id (byte) and block size (int), then per block
+// its original length, payload length and payload (primary index and the inner
+// algorithm's output), and a zero original length at the end.
+class BWTCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    static final int MIN_BLOCK_SIZE = 64 << 10;
+    static final int MAX_BLOCK_SIZE = 8 << 20;
+    private static final CodecContext.Slot TRANSFORMED = new CodecContext.Slot();
+    private static final CodecContext.Slot RUNS = new CodecContext.Slot();
+
+    private final CompressionAlgorithm inner;
+    private final int blockSize;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    BWTCompressionAlgorithm() {
+        this(new HuffmanCompressionAlgorithm(), DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    BWTCompressionAlgorithm(CompressionAlgorithm inner, int blockSize, ExecutorService executor) {
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("BWT block size must be between " + MIN_BLOCK_SIZE
+                    + " and " + MAX_BLOCK_SIZE + " bytes");
+        }
+        this.inner = inner;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.maxInFlight = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        OrderedTasks<ByteBuffer> pending = new OrderedTasks<>(executor, maxInFlight, "BWT block coding");
+        Deque<Integer> pendingLengths = new ArrayDeque<>();
+
+        dataOutput.writeByte(inner.getAlgorithmId());
+        dataOutput.writeInt(blockSize);
+        while (true) {
+            byte[] block = input.readNBytes(blockSize);
+            if (block.length > 0) {
+                pending.submit(() -> encodeBlock(block));
+                pendingLengths.add(block.length);
+            }
+            while (pending.ready(block.length == 0)) {
+                ByteBuffer payload = pending.next();
+                dataOutput.writeInt(pendingLengths.poll());
+                dataOutput.writeInt(payload.remaining());
+                dataOutput.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+                BufferPool.getDefault().release(payload);
+            }
+            if (block.length == 0) {
+                break;
+            }
+        }
+        dataOutput.writeInt(0);
+        dataOutput.flush();
+    }
+
+    // Intermediate arrays come from the worker's CodecContext and the payload,
+    // which crosses threads, from the BufferPool; the inner algorithm codes
+    // straight into it after the primary index.
+    private ByteBuffer encodeBlock(byte[] block) throws IOException {
+        CodecContext context = CodecContext.current();
+        byte[] transformed = context.bytes(TRANSFORMED, block.length);
+        int primary = BurrowsWheeler.forward(block, block.length, transformed);
+        byte[] ranks = block;
+        MoveToFront.encode(transformed, block.length, ranks);
+        byte[] runs = context.bytes(RUNS, MoveToFront.maxZeroRunLength(ranks.length));
+        int runsLength = MoveToFront.encodeZeroRuns(ranks, ranks.length, runs);
+        ByteBuffer payload = StreamingCompressionAlgorithm.compressToPool(inner, runs, runsLength, 4);
+        return payload.putInt(0, primary);
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        OrderedTasks<byte[]> pending = new OrderedTasks<>(executor, maxInFlight, "BWT block coding");
+
+        CompressionAlgorithm storedInner = AlgorithmRegistry.getDefault().getStored(dataInput.readUnsignedByte());
+        int storedBlockSize = dataInput.readInt();
+        if (storedBlockSize < MIN_BLOCK_SIZE || storedBlockSize > MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupt BWT block size: " + storedBlockSize);
+        }
+        long maxCodedLength = storedInner.maxCompressedLength(MoveToFront.maxZeroRunLength(storedBlockSize));
+        long maxPayloadLength = maxCodedLength < 0 ? -1 : 4 + maxCodedLength;
+        while (true) {
+            int length = dataInput.readInt();
+            if (length < 0 || length > storedBlockSize) {
+                throw new IOException("Corrupt BWT block length: " + length);
+            }
+            if (length > 0) {
+                byte[] payload = readCompressedBlock(dataInput, maxPayloadLength);
+                pending.submit(() -> decodeBlock(storedInner, payload, length));
+            }
+            while (pending.ready(length == 0)) {
+                output.write(pending.next());
+            }
+            if (length == 0) {
+                break;
+            }
+        }
+        output.flush();
+    }
+
+    private static byte[] decodeBlock(CompressionAlgorithm inner, byte[] payload, int length) throws IOException {
+        if (payload.length < 4) {
+            throw new IOException("Corrupt BWT block: missing primary index");
+        }
+        int primary = new DataInputStream(new ByteArrayInputStream(payload)).readInt();
+        byte[] runs = inner.decompress(Arrays.copyOfRange(payload, 4, payload.length));
+        byte[] ranks = new byte[length];
+        MoveToFront.decodeZeroRuns(runs, runs.length, ranks, length);
+        byte[] transformed = CodecContext.current().bytes(TRANSFORMED, length);
+        MoveToFront.decode(ranks, length, transformed);
+        byte[] block = ranks;
+        BurrowsWheeler.inverse(transformed, length, primary, block);
+        return block;
+    }
+
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        if (inner.maxCompressedLength(MoveToFront.maxZeroRunLength(blockSize)) < 0) {
+            return -1;
+        }
+        return 1 + 4 + blockBound(inputLength, blockSize,
+                length -> 12 + inner.maxCompressedLength(MoveToFront.maxZeroRunLength((int) length))) + 4;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "BWT + " + inner.getAlgorithmName();
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 7;
+    }
+}
@@ -0,0 +1,76 @@
+package easyarchive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reads bit fields written by BitWriter. Up to 64 bits are kept in a window so
+// callers can peek ahead; past the end of the stream the window is padded with
+// zero bits and only consuming those padding bits is an error. The reader
+// buffers ahead, so it owns the rest of the stream it is given. The buffer
+// is kept in the thread's CodecContext, so only one reader per thread can be
+// in use at a time.
+class BitReader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final CodecContext.Slot BUFFER = new CodecContext.Slot();
+
+    private final InputStream input;
+    private final byte[] buffer = CodecContext.current().bytes(BUFFER, BUFFER_SIZE);
+    private int position;
+    private int limit;
+    private long window;
+    private int available;
+    private int padding;
+
+    BitReader(InputStream input) {
+        this.input = input;
+    }
+
+    // Makes at least `length` bits available, 0 <= length <= 56.
+    void ensure(int length) throws IOException {
+        while (available <= 56) {
+            if (position == limit) {
+                limit = padding == 0 ? input.read(buffer, 0, buffer.length) : -1;
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (available >= length) {
+                        return;
+                    }
+                    window <<= 8;
+                    available += 8;
+                    padding += 8;
+                    continue;
+                }
+            }
+            window = (window << 8) | (buffer[position++] & 0xFF);
+            available += 8;
+        }
+    }
+
+    int peekBits(int length) {
+        return (int)(window >>> (available - length)) & (int)((1L << length) - 1);
+    }
+
+    void skipBits(int length) throws IOException {
+        available -= length;
+        if (available < padding) {
+            throw new EOFException("Unexpected end of compressed data");
+        }
+    }
+
+    int readBits(int length) throws IOException {
+        ensure(length);
+        int value = peekBits(length);
+        skipBits(length);
+        return value;
+    }
+
+    int readBit() throws IOException {
+        return readBits(1);
+    }
+
+    void alignToByte() throws IOException {
+        skipBits(available & 7);
+    }
+}
@@ -0,0 +1,51 @@
+package easyarchive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Packs bit fields most significant bit first into bytes. Bits are gathered in a
+// 64-bit accumulator and bytes in a buffer kept in the thread's CodecContext,
+// so writing a field never allocates or touches the underlying stream. Only
+// one writer per thread can be in use at a time.
+class BitWriter {
+    private static final int BUFFER_SIZE = 8192;
+    private static final CodecContext.Slot BUFFER = new CodecContext.Slot();
+
+    private final OutputStream output;
+    private final byte[] buffer = CodecContext.current().bytes(BUFFER, BUFFER_SIZE);
+    private int position;
+    private long bitBuffer;
+    private int bitCount;
+
+    BitWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    // Writes the low `length` bits of value, 0 <= length <= 32.
+    void writeBits(int value, int length) throws IOException {
+        bitBuffer = (bitBuffer << length) | (value & ((1L << length) - 1));
+        bitCount += length;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            if (position == buffer.length) {
+                output.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = (byte)(bitBuffer >>> bitCount);
+        }
+    }
+
+    // Pads the current byte with zero bits.
+    void alignToByte() throws IOException {
+        if (bitCount > 0) {
+            writeBits(0, 8 - bitCount);
+        }
+    }
+
+    void flush() throws IOException {
+        alignToByte();
+        output.write(buffer, 0, position);
+        position = 0;
+        output.flush();
+    }
+}
@@ -0,0 +1,178 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+// Splits the input into fixed-size blocks that are compressed independently on
+// an executor and written back in order, so any CompressionAlgorithm scales with
+// the number of cores. At most two blocks per core are in flight at once, each
+// compressed into a pooled buffer (see compressToPool).
+//
+// Layout: block size (int), then per block (original length, compressed length,
+// data), a zero original length, and an index of (offset, original length,
+// compressed length) per block followed by the block count and index offset.
+class BlockCompressor {
+    static final int DEFAULT_BLOCK_SIZE = 4 << 20;
+    static final int MIN_BLOCK_SIZE = 64 << 10;
+    static final int MAX_BLOCK_SIZE = 64 << 20;
+
+    private final CompressionAlgorithm algorithm;
+    private final int blockSize;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    BlockCompressor(CompressionAlgorithm algorithm) {
+        this(algorithm, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    BlockCompressor(CompressionAlgorithm algorithm, int blockSize, ExecutorService executor) {
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between " + MIN_BLOCK_SIZE
+                    + " and " + MAX_BLOCK_SIZE + " bytes");
+        }
+        this.algorithm = algorithm;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    void compress(InputStream input, OutputStream output) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        ByteArrayOutputStream indexData = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexData);
+        OrderedTasks<ByteBuffer> pending = new OrderedTasks<>(executor, maxInFlight, "Block coding");
+        Deque<Integer> pendingLengths = new ArrayDeque<>();
+
+        dataOutput.writeInt(blockSize);
+        long position = 4;
+        int blockCount = 0;
+        while (true) {
+            byte[] block = input.readNBytes(blockSize);
+            if (block.length > 0) {
+                pending.submit(() -> StreamingCompressionAlgorithm.compressToPool(algorithm, block, block.length, 0));
+                pendingLengths.add(block.length);
+            }
+            while (pending.ready(block.length == 0)) {
+                int length = pendingLengths.poll();
+                ByteBuffer compressed = pending.next();
+                int compressedLength = compressed.remaining();
+                dataOutput.writeInt(length);
+                dataOutput.writeInt(compressedLength);
+                dataOutput.write(compressed.array(), compressed.arrayOffset() + compressed.position(), compressedLength);
+                BufferPool.getDefault().release(compressed);
+                index.writeLong(position);
+                index.writeInt(length);
+                index.writeInt(compressedLength);
+                position += 8 + compressedLength;
+                blockCount++;
+            }
+            if (block.length == 0) {
+                break;
+            }
+        }
+        dataOutput.writeInt(0);
+        position += 4;
+
+        indexData.writeTo(dataOutput);
+        dataOutput.writeInt(blockCount);
+        dataOutput.writeLong(position);
+        dataOutput.flush();
+    }
+
+    // The algorithm's bound per block plus the block headers and index; -1 if
+    // the algorithm has none.
+    long maxCompressedLength(long inputLength) {
+        if (algorithm.maxCompressedLength(blockSize) < 0) {
+            return -1;
+        }
+        long blocks = (inputLength + blockSize - 1) / blockSize;
+        long data = StreamingCompressionAlgorithm.blockBound(inputLength, blockSize,
+                length -> 8 + algorithm.maxCompressedLength(length));
+        return 4 + data + 4 + 16 * blocks + 12;
+    }
+
+    void decompress(InputStream input, OutputStream output) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        OrderedTasks<byte[]> pending = new OrderedTasks<>(executor, maxInFlight, "Block coding");
+
+        int storedBlockSize = dataInput.readInt();
+        if (storedBlockSize < MIN_BLOCK_SIZE || storedBlockSize > MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupt block size: " + storedBlockSize);
+        }
+        long maxCompressedLength = algorithm.maxCompressedLength(storedBlockSize);
+        while (true) {
+            int length = dataInput.readInt();
+            if (length < 0 || length > storedBlockSize) {
+                throw new IOException("Corrupt block length: " + length);
+            }
+            if (length > 0) {
+                byte[] compressed = StreamingCompressionAlgorithm.readCompressedBlock(dataInput, maxCompressedLength);
+                pending.submit(() -> decompressBlock(compressed, length));
+            }
+            while (pending.ready(length == 0)) {
+                output.write(pending.next());
+            }
+            if (length == 0) {
+                break;
+            }
+        }
+        output.flush();
+    }
+
+    // Writes bytes [position, position + length) of the original data, decoding
+    // only the blocks that overlap the range. Uses the block index, so the whole
+    // compressed stream has to be addressable, e.g. a mapped archive entry.
+    void decompressRange(ByteBuffer compressed, long position, long length, OutputStream output) throws IOException {
+        int end = compressed.limit();
+        if (end < 16) {
+            throw new IOException("Corrupt block stream: missing index");
+        }
+        int blockCount = compressed.getInt(end - 12);
+        long indexOffset = compressed.getLong(end - 8);
+        if (blockCount < 0 || indexOffset < 0 || indexOffset + 16L * blockCount != end - 12) {
+            throw new IOException("Corrupt block stream: bad index");
+        }
+
+        OrderedTasks<byte[]> pending = new OrderedTasks<>(executor, maxInFlight, "Block coding");
+        Deque<long[]> pendingRanges = new ArrayDeque<>();
+        long blockStart = 0;
+        for (int i = 0; i < blockCount && blockStart < position + length; i++) {
+            int entry = (int)indexOffset + 16 * i;
+            long offset = compressed.getLong(entry);
+            int blockLength = compressed.getInt(entry + 8);
+            int compressedLength = compressed.getInt(entry + 12);
+            long blockEnd = blockStart + blockLength;
+            if (blockEnd > position) {
+                if (offset < 0 || compressedLength < 0 || offset + 8 + compressedLength > indexOffset) {
+                    throw new IOException("Corrupt block stream: block " + i + " is out of bounds");
+                }
+                byte[] data = new byte[compressedLength];
+                compressed.get((int)offset + 8, data);
+                pending.submit(() -> decompressBlock(data, blockLength));
+                pendingRanges.add(new long[] {
+                        Math.max(position, blockStart) - blockStart,
+                        Math.min(position + length, blockEnd) - blockStart });
+            }
+            blockStart = blockEnd;
+            boolean last = i == blockCount - 1 || blockStart >= position + length;
+            while (pending.ready(last)) {
+                byte[] block = pending.next();
+                long[] range = pendingRanges.poll();
+                output.write(block, (int)range[0], (int)(range[1] - range[0]));
+            }
+        }
+        output.flush();
+    }
+
+    private byte[] decompressBlock(byte[] compressed, int length) throws IOException {
+        byte[] block = algorithm.decompress(compressed);
+        if (block.length != length) {
+            throw new IOException("Corrupt block: expected " + length + " bytes but got " + block.length);
+        }
+        return block;
+    }
+}
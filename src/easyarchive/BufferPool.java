@@ -0,0 +1,156 @@
+package easyarchive;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Heap and direct ByteBuffers recycled in power-of-two size classes from
+// MIN_CAPACITY to MAX_CAPACITY, for buffers that outlive a codec call and move
+// between threads (file contents and encoded entries in CompressionPipeline).
+// Per-call scratch lives in CodecContext instead.
+//
+// A request is rounded up to its class, so a buffer can be larger than asked
+// for; its limit is set to the requested size. Released buffers are kept until
+// a pool holds maxRetainedBytes; beyond that, and for requests above
+// MAX_CAPACITY, buffers are left to the garbage collector. A buffer must not be
+// used after it is released, and only buffers from allocate/allocateDirect are
+// taken back.
+final class BufferPool {
+    static final int MIN_CAPACITY = 4 << 10;
+    static final int MAX_CAPACITY = 64 << 20;
+    static final long DEFAULT_MAX_RETAINED_BYTES = 128L << 20;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_CAPACITY) - MIN_SHIFT + 1;
+    private static final BufferPool DEFAULT = new BufferPool(DEFAULT_MAX_RETAINED_BYTES);
+
+    private final Classes heap;
+    private final Classes direct;
+
+    BufferPool(long maxRetainedBytes) {
+        this.heap = new Classes(maxRetainedBytes);
+        this.direct = new Classes(maxRetainedBytes);
+    }
+
+    static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    private static final class Classes {
+        final long maxRetainedBytes;
+        final AtomicLong retainedBytes = new AtomicLong();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final ConcurrentLinkedQueue<ByteBuffer>[] free = new ConcurrentLinkedQueue[CLASSES];
+
+        Classes(long maxRetainedBytes) {
+            this.maxRetainedBytes = maxRetainedBytes;
+            Arrays.setAll(free, i -> new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    ByteBuffer allocate(int capacity) {
+        return take(heap, capacity, false);
+    }
+
+    ByteBuffer allocateDirect(int capacity) {
+        return take(direct, capacity, true);
+    }
+
+    void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (capacity < MIN_CAPACITY || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1
+                || buffer.isReadOnly() || (!buffer.isDirect() && buffer.arrayOffset() != 0)) {
+            return;
+        }
+        Classes classes = buffer.isDirect() ? direct : heap;
+        if (classes.retainedBytes.addAndGet(capacity) > classes.maxRetainedBytes) {
+            classes.retainedBytes.addAndGet(-capacity);
+            return;
+        }
+        buffer.clear();
+        classes.free[classIndex(capacity)].add(buffer);
+    }
+
+    private static ByteBuffer take(Classes classes, int capacity, boolean direct) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative buffer capacity: " + capacity);
+        }
+        if (capacity > MAX_CAPACITY) {
+            return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+        int index = classIndex(capacity);
+        ByteBuffer buffer = classes.free[index].poll();
+        if (buffer == null) {
+            int classCapacity = MIN_CAPACITY << index;
+            buffer = direct ? ByteBuffer.allocateDirect(classCapacity) : ByteBuffer.allocate(classCapacity);
+        } else {
+            classes.retainedBytes.addAndGet(-buffer.capacity());
+        }
+        buffer.limit(capacity);
+        return buffer;
+    }
+
+    private static int classIndex(int capacity) {
+        if (capacity <= MIN_CAPACITY) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+}
+
+
+// Collects output in pooled heap buffers, moving to the next size class as it
+// grows, so encoding into memory leaves no doubling garbage behind and needs no
+// toByteArray copy at the end.
+class PooledOutputStream extends OutputStream {
+    private final BufferPool pool;
+    private ByteBuffer buffer;
+
+    PooledOutputStream(BufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.buffer = pool.allocate(Math.max(initialCapacity, BufferPool.MIN_CAPACITY));
+        this.buffer.limit(buffer.capacity());
+    }
+
+    @Override
+    public void write(int b) {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensure(len);
+        buffer.put(b, off, len);
+    }
+
+    int size() {
+        return buffer.position();
+    }
+
+    // Hands over the data as a buffer from position 0 to the end of the
+    // output; the caller releases it to the pool. The stream can't be written
+    // afterwards.
+    ByteBuffer toBuffer() {
+        ByteBuffer result = buffer.flip();
+        buffer = null;
+        return result;
+    }
+
+    private void ensure(int length) {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        long needed = (long) buffer.position() + length;
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Output exceeds the maximum buffer size");
+        }
+        ByteBuffer larger = pool.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * buffer.capacity())));
+        larger.limit(larger.capacity());
+        larger.put(buffer.array(), 0, buffer.position());
+        pool.release(buffer);
+        buffer = larger;
+    }
+}
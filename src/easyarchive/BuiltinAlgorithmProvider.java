@@ -0,0 +1,20 @@
+package easyarchive;
+
+import java.util.List;
+
+// The algorithms that ship with the application.
+public class BuiltinAlgorithmProvider implements CompressionAlgorithmProvider {
+    @Override
+    public List<CompressionAlgorithm> getAlgorithms() {
+        return List.of(
+                new StoredCompressionAlgorithm(),
+                new ArithmeticCompressionAlgorithm(),
+                new RunLengthCompressionAlgorithm(),
+                new HuffmanCompressionAlgorithm(),
+                new GolombCompressionAlgorithm(),
+                new LZWCompressionAlgorithm(),
+                new LZSSCompressionAlgorithm(),
+                new BWTCompressionAlgorithm(),
+                new CodecPipeline());
+    }
+}
@@ -0,0 +1,245 @@
+package easyarchive;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Burrows-Wheeler transform of a block with an implicit end-of-block sentinel,
+// for blocks of up to MAX_LENGTH bytes.
+// The suffix array is built with SA-IS (Nong, Zhang and Chan), which is linear
+// in the block length; the inverse follows the LF mapping, also in linear time.
+//
+// The sentinel sorts before every byte, so its suffix is row 0 and the row of
+// the whole block holds the sentinel in the last column. That row is left out
+// of the output and its index returned as the primary index instead.
+class BurrowsWheeler {
+    // Row numbers share an int with a byte during the inverse.
+    static final int MAX_LENGTH = (1 << 24) - 1;
+    private static final CodecContext.Slot TEXT = new CodecContext.Slot();
+    private static final CodecContext.Slot SUFFIX_ARRAY = new CodecContext.Slot();
+    private static final CodecContext.Slot LINKS = new CodecContext.Slot();
+    // SA-IS recursion levels at least halve the text, so a block never needs
+    // more levels than this; each level keeps its own scratch.
+    private static final int MAX_DEPTH = 32;
+    private static final CodecContext.Slot[] TYPES = slots();
+    private static final CodecContext.Slot[] BUCKETS = slots();
+    private static final CodecContext.Slot[] REDUCED = slots();
+    private static final CodecContext.Slot[] REDUCED_SUFFIX_ARRAY = slots();
+
+    private BurrowsWheeler() {
+    }
+
+    private static CodecContext.Slot[] slots() {
+        CodecContext.Slot[] slots = new CodecContext.Slot[MAX_DEPTH];
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            slots[i] = new CodecContext.Slot();
+        }
+        return slots;
+    }
+
+    // Writes the last column of data[0, length) to output[0, length) and returns
+    // the primary index the inverse needs.
+    static int forward(byte[] data, int length, byte[] output) {
+        CodecContext context = CodecContext.current();
+        int[] text = context.ints(TEXT, length + 1);
+        for (int i = 0; i < length; i++) {
+            text[i] = (data[i] & 0xFF) + 1;
+        }
+        text[length] = 0;
+        int[] suffixArray = context.ints(SUFFIX_ARRAY, length + 1);
+        suffixArray(text, suffixArray, length + 1, 257);
+
+        int primary = 0;
+        int out = 0;
+        for (int row = 0; row <= length; row++) {
+            int start = suffixArray[row];
+            if (start == 0) {
+                primary = row;
+            } else {
+                output[out++] = data[start - 1];
+            }
+        }
+        return primary;
+    }
+
+    static void inverse(byte[] lastColumn, int length, int primary, byte[] output) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        if (length > MAX_LENGTH || primary < 1 || primary > length) {
+            throw new IOException("Corrupt BWT block: bad primary index " + primary);
+        }
+        // Rows are numbered with the sentinel row 0 first, so byte c's first row
+        // is one past the count of smaller bytes.
+        int[] firstRow = new int[256];
+        for (int i = 0; i < length; i++) {
+            firstRow[lastColumn[i] & 0xFF]++;
+        }
+        int sum = 1;
+        for (int c = 0; c < 256; c++) {
+            int count = firstRow[c];
+            firstRow[c] = sum;
+            sum += count;
+        }
+
+        // links[row] packs the row of the suffix one position earlier in the
+        // block with the byte that precedes this row's suffix, so each step of
+        // the walk touches a single array entry.
+        int[] links = CodecContext.current().ints(LINKS, length + 1);
+        for (int row = 0, i = 0; row <= length; row++) {
+            if (row == primary) {
+                links[row] = 0;
+                continue;
+            }
+            int c = lastColumn[i++] & 0xFF;
+            links[row] = firstRow[c]++ << 8 | c;
+        }
+        int link = links[0];
+        for (int position = length - 1; position >= 0; position--) {
+            output[position] = (byte) link;
+            link = links[link >>> 8];
+        }
+    }
+
+    // SA-IS over text[0, n) with symbols in [0, alphabetSize); text[n - 1] must
+    // be a unique smallest symbol.
+    static void suffixArray(int[] text, int[] suffixArray, int n, int alphabetSize) {
+        suffixArray(text, suffixArray, n, alphabetSize, 0);
+    }
+
+    private static void suffixArray(int[] text, int[] suffixArray, int n, int alphabetSize, int depth) {
+        if (n == 1) {
+            suffixArray[0] = 0;
+            return;
+        }
+        CodecContext context = CodecContext.current();
+        // S-type suffixes are smaller than the suffix after them.
+        boolean[] sType = context.booleans(TYPES[depth], n);
+        sType[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--) {
+            sType[i] = text[i] < text[i + 1] || (text[i] == text[i + 1] && sType[i + 1]);
+        }
+        int[] buckets = context.ints(BUCKETS[depth], alphabetSize);
+
+        // Sort the LMS substrings by placing LMS positions at their bucket ends
+        // and inducing the rest.
+        Arrays.fill(suffixArray, 0, n, -1);
+        bucketEnds(text, n, buckets, alphabetSize);
+        for (int i = 1; i < n; i++) {
+            if (isLms(sType, i)) {
+                suffixArray[--buckets[text[i]]] = i;
+            }
+        }
+        induce(text, suffixArray, sType, n, buckets, alphabetSize);
+
+        // Name the sorted LMS substrings; equal substrings share a name.
+        int lmsCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLms(sType, suffixArray[i])) {
+                suffixArray[lmsCount++] = suffixArray[i];
+            }
+        }
+        Arrays.fill(suffixArray, lmsCount, n, -1);
+        int names = 0;
+        int previous = -1;
+        for (int i = 0; i < lmsCount; i++) {
+            int position = suffixArray[i];
+            if (previous < 0 || !equalLmsSubstrings(text, sType, position, previous)) {
+                names++;
+                previous = position;
+            }
+            suffixArray[lmsCount + (position >> 1)] = names - 1;
+        }
+        int[] reduced = context.ints(REDUCED[depth], lmsCount);
+        for (int i = lmsCount, j = 0; i < n; i++) {
+            if (suffixArray[i] >= 0) {
+                reduced[j++] = suffixArray[i];
+            }
+        }
+
+        // Sort the LMS suffixes, recursing when names alone don't order them.
+        int[] reducedSuffixArray = context.ints(REDUCED_SUFFIX_ARRAY[depth], lmsCount);
+        if (names < lmsCount) {
+            suffixArray(reduced, reducedSuffixArray, lmsCount, names, depth + 1);
+        } else {
+            for (int i = 0; i < lmsCount; i++) {
+                reducedSuffixArray[reduced[i]] = i;
+            }
+        }
+
+        // Map back to text positions and induce the full suffix array from the
+        // sorted LMS suffixes.
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLms(sType, i)) {
+                reduced[j++] = i;
+            }
+        }
+        Arrays.fill(suffixArray, 0, n, -1);
+        bucketEnds(text, n, buckets, alphabetSize);
+        for (int i = lmsCount - 1; i >= 0; i--) {
+            int position = reduced[reducedSuffixArray[i]];
+            suffixArray[--buckets[text[position]]] = position;
+        }
+        induce(text, suffixArray, sType, n, buckets, alphabetSize);
+    }
+
+    private static boolean isLms(boolean[] sType, int i) {
+        return i > 0 && sType[i] && !sType[i - 1];
+    }
+
+    private static boolean equalLmsSubstrings(int[] text, boolean[] sType, int a, int b) {
+        for (int d = 0; ; d++) {
+            if (text[a + d] != text[b + d] || sType[a + d] != sType[b + d]) {
+                return false;
+            }
+            if (d > 0 && (isLms(sType, a + d) || isLms(sType, b + d))) {
+                return true;
+            }
+        }
+    }
+
+    // Induces L-type suffixes left to right from bucket starts, then S-type
+    // suffixes right to left from bucket ends.
+    private static void induce(int[] text, int[] suffixArray, boolean[] sType, int n, int[] buckets,
+                               int alphabetSize) {
+        bucketStarts(text, n, buckets, alphabetSize);
+        for (int i = 0; i < n; i++) {
+            int j = suffixArray[i] - 1;
+            if (j >= 0 && !sType[j]) {
+                suffixArray[buckets[text[j]]++] = j;
+            }
+        }
+        bucketEnds(text, n, buckets, alphabetSize);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = suffixArray[i] - 1;
+            if (j >= 0 && sType[j]) {
+                suffixArray[--buckets[text[j]]] = j;
+            }
+        }
+    }
+
+    private static void bucketStarts(int[] text, int n, int[] buckets, int alphabetSize) {
+        countSymbols(text, n, buckets, alphabetSize);
+        int sum = 0;
+        for (int c = 0; c < alphabetSize; c++) {
+            int count = buckets[c];
+            buckets[c] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(int[] text, int n, int[] buckets, int alphabetSize) {
+        countSymbols(text, n, buckets, alphabetSize);
+        int sum = 0;
+        for (int c = 0; c < alphabetSize; c++) {
+            sum += buckets[c];
+            buckets[c] = sum;
+        }
+    }
+
+    private static void countSymbols(int[] text, int n, int[] buckets, int alphabetSize) {
+        Arrays.fill(buckets, 0, alphabetSize, 0);
+        for (int i = 0; i < n; i++) {
+            buckets[text[i]]++;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package easyarchive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Writes into a fixed ByteBuffer (heap, direct or mapped) from its position
+// on. Running out of room is an IOException rather than a reallocation; size
+// the buffer with CompressionAlgorithm.maxCompressedLength.
+class ByteBufferOutputStream extends OutputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferOutputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Output buffer is full");
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buffer.remaining()) {
+            throw new IOException("Output buffer is full: " + len + " bytes to write, "
+                    + buffer.remaining() + " left");
+        }
+        buffer.put(b, off, len);
+    }
+}
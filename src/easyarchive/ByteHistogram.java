@@ -0,0 +1,31 @@
+package easyarchive;
+
+import java.util.Arrays;
+
+// Byte frequency counting over primitive arrays. Consecutive bytes are spread
+// over four tables so repeated bytes don't serialize on the same counter; the
+// tables are the thread's CodecContext scratch rather than a new array per
+// call.
+class ByteHistogram {
+    private static final CodecContext.Slot TABLES = new CodecContext.Slot();
+
+    // Adds the byte counts of data[offset, offset + length) to counts.
+    static void count(byte[] data, int offset, int length, int[] counts) {
+        int[] tables = CodecContext.current().ints(TABLES, 4 * 256);
+        Arrays.fill(tables, 0, 4 * 256, 0);
+        int end = offset + length;
+        int i = offset;
+        for (; i + 3 < end; i += 4) {
+            tables[data[i] & 0xFF]++;
+            tables[256 + (data[i + 1] & 0xFF)]++;
+            tables[512 + (data[i + 2] & 0xFF)]++;
+            tables[768 + (data[i + 3] & 0xFF)]++;
+        }
+        for (; i < end; i++) {
+            tables[data[i] & 0xFF]++;
+        }
+        for (int symbol = 0; symbol < 256; symbol++) {
+            counts[symbol] += tables[symbol] + tables[256 + symbol] + tables[512 + symbol] + tables[768 + symbol];
+        }
+    }
+}
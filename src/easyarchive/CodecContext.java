@@ -0,0 +1,148 @@
+package easyarchive;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-thread scratch arrays for codecs. Algorithm instances are shared (see
+// AlgorithmRegistry), so the tables a call needs (hash chains, token lists,
+// context models, coded output) live here and are reused by the next call on
+// the same thread instead of being allocated per file or per block.
+//
+// Each array belongs to a Slot declared by its user. A codec holding a slot
+// must not run code that uses the same slot on the same thread, which in
+// practice means not nesting a codec inside itself. Arrays above
+// MAX_RETAINED_BYTES are handed out but not kept, so a thread that once saw a
+// huge block doesn't hold on to it, and a thread keeps at most
+// MAX_TOTAL_RETAINED_BYTES in all: when a new array would go over, the largest
+// other ones are dropped first. That total is the standing cost of every
+// thread that has run a codec, e.g. each CompressionPipeline worker and each
+// common pool thread used by BlockCompressor; one codec's working set fits
+// well within it, so only switching between codecs reallocates.
+final class CodecContext {
+    static final int MAX_RETAINED_BYTES = 16 << 20;
+    static final int MAX_TOTAL_RETAINED_BYTES = 24 << 20;
+
+    private static final AtomicInteger SLOT_COUNT = new AtomicInteger();
+    private static final ThreadLocal<CodecContext> CURRENT = ThreadLocal.withInitial(CodecContext::new);
+
+    private Object[] arrays = new Object[16];
+
+    static final class Slot {
+        final int index = SLOT_COUNT.getAndIncrement();
+    }
+
+    private CodecContext() {
+    }
+
+    static CodecContext current() {
+        return CURRENT.get();
+    }
+
+    // Arrays hold whatever the previous user left in them and may be longer
+    // than asked for; callers clear what they read before writing.
+    byte[] bytes(Slot slot, int length) {
+        Object array = get(slot);
+        if (array instanceof byte[] && ((byte[]) array).length >= length) {
+            return (byte[]) array;
+        }
+        return (byte[]) put(slot, new byte[length], length);
+    }
+
+    boolean[] booleans(Slot slot, int length) {
+        Object array = get(slot);
+        if (array instanceof boolean[] && ((boolean[]) array).length >= length) {
+            return (boolean[]) array;
+        }
+        return (boolean[]) put(slot, new boolean[length], length);
+    }
+
+    short[] shorts(Slot slot, int length) {
+        Object array = get(slot);
+        if (array instanceof short[] && ((short[]) array).length >= length) {
+            return (short[]) array;
+        }
+        return (short[]) put(slot, new short[length], 2L * length);
+    }
+
+    int[] ints(Slot slot, int length) {
+        Object array = get(slot);
+        if (array instanceof int[] && ((int[]) array).length >= length) {
+            return (int[]) array;
+        }
+        return (int[]) put(slot, new int[length], 4L * length);
+    }
+
+    // An empty stream whose buffer is kept between uses.
+    ScratchOutputStream output(Slot slot) {
+        Object stream = get(slot);
+        if (stream instanceof ScratchOutputStream && ((ScratchOutputStream) stream).array().length <= MAX_RETAINED_BYTES) {
+            ((ScratchOutputStream) stream).reset();
+            return (ScratchOutputStream) stream;
+        }
+        return (ScratchOutputStream) put(slot, new ScratchOutputStream(), 0);
+    }
+
+    private Object get(Slot slot) {
+        return slot.index < arrays.length ? arrays[slot.index] : null;
+    }
+
+    private Object put(Slot slot, Object array, long bytes) {
+        if (bytes > MAX_RETAINED_BYTES) {
+            return array;
+        }
+        if (slot.index >= arrays.length) {
+            arrays = Arrays.copyOf(arrays, Math.max(slot.index + 1, 2 * arrays.length));
+        }
+        arrays[slot.index] = null;
+        // Streams grow after they are stored, so sizes are taken as they are now.
+        long retained = bytes;
+        for (Object other : arrays) {
+            retained += sizeOf(other);
+        }
+        while (retained > MAX_TOTAL_RETAINED_BYTES) {
+            int largest = 0;
+            for (int i = 1; i < arrays.length; i++) {
+                if (sizeOf(arrays[i]) > sizeOf(arrays[largest])) {
+                    largest = i;
+                }
+            }
+            retained -= sizeOf(arrays[largest]);
+            arrays[largest] = null;
+        }
+        arrays[slot.index] = array;
+        return array;
+    }
+
+    private static long sizeOf(Object array) {
+        if (array instanceof byte[]) {
+            return ((byte[]) array).length;
+        }
+        if (array instanceof boolean[]) {
+            return ((boolean[]) array).length;
+        }
+        if (array instanceof short[]) {
+            return 2L * ((short[]) array).length;
+        }
+        if (array instanceof int[]) {
+            return 4L * ((int[]) array).length;
+        }
+        if (array instanceof ScratchOutputStream) {
+            return ((ScratchOutputStream) array).array().length;
+        }
+        return 0;
+    }
+}
+
+
+// A ByteArrayOutputStream whose contents can be read in place instead of
+// copied out with toByteArray.
+class ScratchOutputStream extends ByteArrayOutputStream {
+    ScratchOutputStream() {
+        super(BufferPool.MIN_CAPACITY);
+    }
+
+    byte[] array() {
+        return buf;
+    }
+}
@@ -0,0 +1,251 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// A chain of Transforms followed by an entropy coder, built from a spec such
+// as "delta+rle+huffman" or "bwt+mtf+zrle+arithmetic" instead of a new
+// monolithic algorithm per combination. Each block passes through the stages
+// in two arrays used alternately, and the coder writes into a reused buffer
+// sized by its maxCompressedLength that goes to the output without being
+// copied. All of them are kept in the thread's CodecContext, so the coder has
+// to be a plain algorithm rather than another pipeline or the BWT algorithm,
+// which wait on other threads.
+//
+// Layout: the transform count and ids (bytes), the coder's algorithm id
+// (byte) and the block size (int), so the chain is rebuilt on decompression.
+// Each block is its original length, the length after each transform, the
+// coded length and the coded data; the stream ends with a zero length.
+class CodecPipeline extends StreamingCompressionAlgorithm {
+    static final int MAX_TRANSFORMS = 8;
+    private static final CodecContext.Slot CURRENT = new CodecContext.Slot();
+    private static final CodecContext.Slot NEXT = new CodecContext.Slot();
+    private static final CodecContext.Slot CODED = new CodecContext.Slot();
+    private static final CodecContext.Slot ENCODED = new CodecContext.Slot();
+
+    private final List<Transform> transforms;
+    private final CompressionAlgorithm coder;
+    private final int blockSize;
+
+    CodecPipeline() {
+        this(List.of(new BurrowsWheelerTransform(), new MoveToFrontTransform(), new ZeroRunTransform()),
+                new HuffmanCompressionAlgorithm(), BLOCK_SIZE);
+    }
+
+    CodecPipeline(List<Transform> transforms, CompressionAlgorithm coder, int blockSize) {
+        if (transforms.size() > MAX_TRANSFORMS) {
+            throw new IllegalArgumentException("A pipeline takes at most " + MAX_TRANSFORMS + " transforms");
+        }
+        if (blockSize <= 0 || blockSize > BurrowsWheeler.MAX_LENGTH) {
+            throw new IllegalArgumentException("Invalid pipeline block size: " + blockSize);
+        }
+        if (!isPlainCoder(coder)) {
+            throw new IllegalArgumentException(coder.getAlgorithmName() + " can't end a pipeline");
+        }
+        this.transforms = List.copyOf(transforms);
+        this.coder = coder;
+        this.blockSize = blockSize;
+    }
+
+    // Transform names joined by '+', ending with the coder: an algorithm id or
+    // a unique prefix of its name.
+    static CodecPipeline parse(String spec) {
+        String[] parts = spec.split("\\+");
+        List<Transform> transforms = new ArrayList<>();
+        for (int i = 0; i < parts.length - 1; i++) {
+            transforms.add(Transform.forName(parts[i].trim()));
+        }
+        CompressionAlgorithm coder = AlgorithmRegistry.getDefault().find(parts[parts.length - 1].trim());
+        return new CodecPipeline(transforms, coder, BLOCK_SIZE);
+    }
+
+    private static boolean isPlainCoder(CompressionAlgorithm coder) {
+        return !(coder instanceof CodecPipeline) && !(coder instanceof BWTCompressionAlgorithm);
+    }
+
+    // Sizes of the stage outputs in the worst case, starting with the block.
+    private static int[] maxLengths(List<Transform> transforms, int blockSize) {
+        int[] maxLengths = new int[transforms.size() + 1];
+        maxLengths[0] = blockSize;
+        for (int i = 0; i < transforms.size(); i++) {
+            maxLengths[i + 1] = transforms.get(i).maxEncodedLength(maxLengths[i]);
+        }
+        return maxLengths;
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeByte(transforms.size());
+        for (Transform transform : transforms) {
+            dataOutput.writeByte(transform.getTransformId());
+        }
+        dataOutput.writeByte(coder.getAlgorithmId());
+        dataOutput.writeInt(blockSize);
+
+        CodecContext context = CodecContext.current();
+        int bufferSize = max(maxLengths(transforms, blockSize));
+        byte[] current = context.bytes(CURRENT, bufferSize);
+        byte[] next = context.bytes(NEXT, bufferSize);
+        int[] stageLengths = new int[transforms.size()];
+        ScratchOutputStream coded = null;
+        int length;
+        while ((length = input.readNBytes(current, 0, blockSize)) > 0) {
+            int stageLength = length;
+            for (int i = 0; i < transforms.size(); i++) {
+                stageLength = transforms.get(i).encode(current, stageLength, next);
+                stageLengths[i] = stageLength;
+                byte[] swap = current;
+                current = next;
+                next = swap;
+            }
+            // With a bound the coder writes into a reused array of that size;
+            // without one, into a reused stream that grows as needed.
+            byte[] codedData;
+            int codedLength;
+            long bound = coder.maxCompressedLength(stageLength);
+            if (bound >= 0 && bound <= CodecContext.MAX_RETAINED_BYTES) {
+                codedData = context.bytes(ENCODED, (int) bound);
+                ByteBuffer target = ByteBuffer.wrap(codedData, 0, (int) bound);
+                coder.compress(ByteBuffer.wrap(current, 0, stageLength), target);
+                codedLength = target.position();
+            } else {
+                coded = coded == null ? context.output(CODED) : coded;
+                coded.reset();
+                coder.compress(new ByteArrayInputStream(current, 0, stageLength), coded);
+                codedData = coded.array();
+                codedLength = coded.size();
+            }
+
+            dataOutput.writeInt(length);
+            for (int stage : stageLengths) {
+                dataOutput.writeInt(stage);
+            }
+            dataOutput.writeInt(codedLength);
+            dataOutput.write(codedData, 0, codedLength);
+        }
+        dataOutput.writeInt(0);
+        dataOutput.flush();
+    }
+
+    // Rebuilds the chain recorded at the start of a pipeline stream, e.g. to
+    // name it: every chain is stored under the same algorithm id.
+    static CodecPipeline readHeader(DataInputStream dataInput) throws IOException {
+        int transformCount = dataInput.readUnsignedByte();
+        if (transformCount > MAX_TRANSFORMS) {
+            throw new IOException("Corrupt pipeline header: " + transformCount + " transforms");
+        }
+        List<Transform> storedTransforms = new ArrayList<>();
+        try {
+            for (int i = 0; i < transformCount; i++) {
+                storedTransforms.add(Transform.forId(dataInput.readUnsignedByte()));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt pipeline header: " + e.getMessage());
+        }
+        CompressionAlgorithm storedCoder = AlgorithmRegistry.getDefault().getStored(dataInput.readUnsignedByte());
+        if (!isPlainCoder(storedCoder)) {
+            throw new IOException("Corrupt pipeline header: " + storedCoder.getAlgorithmName() + " as the coder");
+        }
+        int storedBlockSize = dataInput.readInt();
+        if (storedBlockSize <= 0 || storedBlockSize > BurrowsWheeler.MAX_LENGTH) {
+            throw new IOException("Corrupt pipeline block size: " + storedBlockSize);
+        }
+        return new CodecPipeline(storedTransforms, storedCoder, storedBlockSize);
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        CodecPipeline stored = readHeader(dataInput);
+        List<Transform> storedTransforms = stored.transforms;
+        CompressionAlgorithm storedCoder = stored.coder;
+        int storedBlockSize = stored.blockSize;
+        int transformCount = storedTransforms.size();
+
+        CodecContext context = CodecContext.current();
+        int[] maxLengths = maxLengths(storedTransforms, storedBlockSize);
+        int bufferSize = max(maxLengths);
+        long maxCodedLength = storedCoder.maxCompressedLength(maxLengths[transformCount]);
+        byte[] current = context.bytes(CURRENT, bufferSize);
+        byte[] next = context.bytes(NEXT, bufferSize);
+        int[] lengths = new int[transformCount + 1];
+        ScratchOutputStream decoded = context.output(CODED);
+        while ((lengths[0] = dataInput.readInt()) != 0) {
+            for (int i = 0; i <= transformCount; i++) {
+                if (i > 0) {
+                    lengths[i] = dataInput.readInt();
+                }
+                if (lengths[i] < 0 || lengths[i] > maxLengths[i]) {
+                    throw new IOException("Corrupt pipeline stage length: " + lengths[i]);
+                }
+            }
+            int codedLength = dataInput.readInt();
+            if (codedLength < 0 || (maxCodedLength >= 0 && codedLength > maxCodedLength)) {
+                throw new IOException("Corrupt pipeline coded length: " + codedLength);
+            }
+            // The coded data is dead once decoded, so it can borrow a stage buffer.
+            byte[] codedData;
+            if (current.length >= codedLength) {
+                codedData = current;
+                dataInput.readFully(codedData, 0, codedLength);
+            } else {
+                codedData = dataInput.readNBytes(codedLength);
+                if (codedData.length != codedLength) {
+                    throw new EOFException("Pipeline block is truncated");
+                }
+            }
+
+            decoded.reset();
+            storedCoder.decompress(new ByteArrayInputStream(codedData, 0, codedLength), decoded);
+            if (decoded.size() != lengths[transformCount]) {
+                throw new IOException("Corrupt pipeline block: expected " + lengths[transformCount]
+                        + " coded bytes but got " + decoded.size());
+            }
+            byte[] stage = decoded.array();
+            for (int i = transformCount - 1; i >= 0; i--) {
+                storedTransforms.get(i).decode(stage, lengths[i + 1], current, lengths[i]);
+                stage = current;
+                current = next;
+                next = stage;
+            }
+            output.write(stage, 0, lengths[0]);
+        }
+        output.flush();
+    }
+
+    // Every stage's length is a header int, and the coder sees at most the
+    // last stage's worst case.
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        if (coder.maxCompressedLength(blockSize) < 0) {
+            return -1;
+        }
+        return 1 + transforms.size() + 1 + 4 + blockBound(inputLength, blockSize, length -> 8 + 4L * transforms.size()
+                + coder.maxCompressedLength(maxLengths(transforms, (int) length)[transforms.size()])) + 4;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        StringBuilder name = new StringBuilder("Pipeline ");
+        for (Transform transform : transforms) {
+            name.append(transform.getTransformName()).append('+');
+        }
+        return name.append(coder.getAlgorithmName()).toString();
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 8;
+    }
+}
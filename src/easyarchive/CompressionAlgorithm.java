@@ -0,0 +1,64 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// A codec, registered through a CompressionAlgorithmProvider. Only the array
+// methods, the name and the id are required; streaming codecs extend
+// StreamingCompressionAlgorithm instead.
+public interface CompressionAlgorithm {
+    int BLOCK_SIZE = 1 << 20;
+
+    byte[] compress(byte[] input) throws IOException;
+    byte[] decompress(byte[] compressed) throws IOException;
+    String getAlgorithmName();
+
+    // Stable identifier recorded in compressed output; never reuse a retired id.
+    int getAlgorithmId();
+
+    // Upper bound on the streaming output for inputLength bytes, so output can
+    // be allocated once; -1 when the algorithm can't bound it.
+    default long maxCompressedLength(long inputLength) {
+        return -1;
+    }
+
+    // Compresses the remaining bytes of input into output from its position,
+    // advancing both. Output can be a heap, direct or mapped buffer; with
+    // maxCompressedLength(input.remaining()) bytes left it never runs out,
+    // otherwise running out is an IOException.
+    default void compress(ByteBuffer input, ByteBuffer output) throws IOException {
+        compress(new ArchiveReader.ByteBufferInputStream(input), new ByteBufferOutputStream(output));
+    }
+
+    // Algorithms that can only work on a whole array are fed one block at a time,
+    // each block written as (original length, compressed length, data) and the
+    // stream terminated by a zero original length.
+    default void compress(InputStream input, OutputStream output) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        byte[] block = new byte[BLOCK_SIZE];
+        int length;
+        while ((length = input.readNBytes(block, 0, block.length)) > 0) {
+            byte[] compressed = compress(length == block.length ? block : Arrays.copyOf(block, length));
+            dataOutput.writeInt(length);
+            dataOutput.writeInt(compressed.length);
+            dataOutput.write(compressed);
+        }
+        dataOutput.writeInt(0);
+        dataOutput.flush();
+    }
+
+    default void decompress(InputStream input, OutputStream output) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        int length;
+        while ((length = dataInput.readInt()) > 0) {
+            byte[] compressed = StreamingCompressionAlgorithm.readCompressedBlock(dataInput, -1);
+            byte[] block = decompress(compressed);
+            if (block.length != length) {
+                throw new IOException("Corrupt block: expected " + length + " bytes but got " + block.length);
+            }
+            output.write(block);
+        }
+        output.flush();
+    }
+}
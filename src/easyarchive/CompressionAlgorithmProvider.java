@@ -0,0 +1,11 @@
+package easyarchive;
+
+import java.util.List;
+
+// Service interface for AlgorithmRegistry. Implementations are listed in
+// META-INF/services/easyarchive.CompressionAlgorithmProvider of their jar, so
+// codecs can be added without touching FileCompressor. Algorithms are shared
+// across threads and must keep per-call state out of their fields.
+public interface CompressionAlgorithmProvider {
+    List<CompressionAlgorithm> getAlgorithms();
+}
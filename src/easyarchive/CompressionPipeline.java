@@ -0,0 +1,258 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Compresses many files into one archive with I/O and CPU overlapped. A reader
+// thread schedules files ahead of the writer: sizes are looked up and files
+// read on an I/O executor, then handed to a worker pool for compression, and
+// the calling thread writes the finished entries to the archive in input
+// order.
+//
+// Small files are dominated by open/read/close latency rather than CPU, so
+// reads run concurrently, up to MAX_CONCURRENT_READS at a time. On JDK 21 and
+// later the I/O executor uses a virtual thread per task; older runtimes get a
+// fixed pool of IO_THREADS platform threads.
+//
+// Prefetched files are charged to an in-flight byte budget from the moment
+// they are read until their entry is written, so the reader stalls instead of
+// holding the whole batch in memory. Files larger than half the budget are not
+// prefetched; the writer compresses them straight from disk when their turn
+// comes, while the reader keeps filling the budget with the files after them.
+//
+// File contents and encoded entries are held in buffers from the default
+// BufferPool and returned to it once encoded or written, so a long batch reuses
+// the same memory instead of allocating two arrays per file.
+class CompressionPipeline {
+    static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 256L << 20;
+    static final int MAX_CONCURRENT_READS = 256;
+    static final int IO_THREADS = 16;
+
+    interface Listener {
+        void entryWritten(int index, File file, ArchiveEntry entry);
+    }
+
+    private final FileCompressor compressor;
+    private final String algorithmName;
+    private final ExecutorService workers;
+    private final long maxInFlightBytes;
+    private final Semaphore reads = new Semaphore(MAX_CONCURRENT_READS);
+    private final Object budgetLock = new Object();
+    private long inFlightBytes;
+    private volatile boolean cancelled;
+
+    CompressionPipeline(FileCompressor compressor, String algorithmName, ExecutorService workers,
+                        long maxInFlightBytes) {
+        if (maxInFlightBytes <= 0) {
+            throw new IllegalArgumentException("In-flight budget must be positive");
+        }
+        this.compressor = compressor;
+        this.algorithmName = algorithmName;
+        this.workers = workers;
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    // One queued file: either a pending encode or, for large files, nothing
+    // until the writer reaches it.
+    private static class Item {
+        final File file;
+        final Future<ArchiveWriter.EncodedEntry> encoded;
+        final IOException error;
+
+        Item(File file, Future<ArchiveWriter.EncodedEntry> encoded, IOException error) {
+            this.file = file;
+            this.encoded = encoded;
+            this.error = error;
+        }
+    }
+
+    private static final Item END = new Item(null, null, null);
+
+    // Stores each file under its own name.
+    List<ArchiveEntry> run(List<File> files, ArchiveWriter archive, Listener listener) throws IOException {
+        return run(files, EntryNames.of(files), archive, listener);
+    }
+
+    // Stores files.get(i) as names.get(i); duplicate names are rejected before
+    // anything is read. Returns the entries written; fewer than files.size() if
+    // cancelled.
+    List<ArchiveEntry> run(List<File> files, List<String> names, ArchiveWriter archive,
+                           Listener listener) throws IOException {
+        EntryNames.checkUnique(names);
+        BlockingQueue<Item> queue = new LinkedBlockingQueue<>();
+        ExecutorService io = newIoExecutor();
+        Thread reader = new Thread(() -> read(files, io, queue), "archive-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        List<ArchiveEntry> written = new ArrayList<>();
+        try {
+            for (int index = 0; !cancelled; index++) {
+                Item item = take(queue);
+                if (item == END) {
+                    break;
+                }
+                if (item.error != null) {
+                    throw item.error;
+                }
+                ArchiveEntry entry;
+                if (item.encoded == null) {
+                    entry = compressor.compress(algorithmName, item.file, names.get(index), archive);
+                } else {
+                    ArchiveWriter.EncodedEntry encoded = OrderedTasks.await(item.encoded, "Compressing " + item.file.getName());
+                    entry = archive.addEntry(names.get(index), encoded);
+                    BufferPool.getDefault().release(encoded.data);
+                    release(encoded.originalSize);
+                }
+                written.add(entry);
+                if (listener != null) {
+                    listener.entryWritten(index, item.file, entry);
+                }
+            }
+        } finally {
+            cancelled = true;
+            reader.interrupt();
+            io.shutdownNow();
+            // Pending encodes hold memory and worker threads; drop them.
+            for (Item item : queue) {
+                if (item.encoded != null) {
+                    item.encoded.cancel(true);
+                }
+            }
+        }
+        return written;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    // Sizes are looked up up to MAX_CONCURRENT_READS files ahead so the budget
+    // can be charged in input order without waiting on each lookup in turn.
+    private void read(List<File> files, ExecutorService io, BlockingQueue<Item> queue) {
+        Deque<Future<Long>> sizes = new ArrayDeque<>();
+        int next = 0;
+        try {
+            for (File file : files) {
+                while (next < files.size() && sizes.size() < MAX_CONCURRENT_READS) {
+                    File sized = files.get(next++);
+                    sizes.add(io.submit(() -> Files.size(sized.toPath())));
+                }
+                long size = OrderedTasks.await(sizes.poll(), "Compressing " + file.getName());
+                if (cancelled) {
+                    break;
+                }
+                if (size > maxInFlightBytes / 2) {
+                    queue.add(new Item(file, null, null));
+                    continue;
+                }
+                acquire(size);
+                reads.acquire();
+                CompletableFuture<ArchiveWriter.EncodedEntry> encoded = CompletableFuture
+                        .supplyAsync(() -> readFile(file, size), io)
+                        .thenApplyAsync(data -> encode(data), workers);
+                queue.add(new Item(file, encoded, null));
+            }
+        } catch (IOException e) {
+            queue.add(new Item(null, null, e));
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // Cancelled or the writer failed; nobody is waiting for the end marker.
+            return;
+        }
+        queue.add(END);
+    }
+
+    private ByteBuffer readFile(File file, long size) {
+        BufferPool pool = BufferPool.getDefault();
+        // One spare byte so reaching the end doesn't look like a full buffer.
+        ByteBuffer data = pool.allocate((int) Math.min(size + 1, Integer.MAX_VALUE - 8));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            data.limit(data.capacity());
+            while (true) {
+                if (!data.hasRemaining()) {
+                    // The file grew since it was sized.
+                    ByteBuffer larger = pool.allocate((int) Math.min(2L * data.capacity(), Integer.MAX_VALUE - 8));
+                    larger.limit(larger.capacity());
+                    larger.put(data.flip());
+                    pool.release(data);
+                    data = larger;
+                }
+                if (channel.read(data) < 0) {
+                    break;
+                }
+            }
+            data.flip();
+            // The file may have changed since it was sized; charge what was read.
+            adjust(data.remaining() - size);
+            return data;
+        } catch (IOException e) {
+            pool.release(data);
+            throw new UncheckedIOException(e);
+        } finally {
+            reads.release();
+        }
+    }
+
+    private ArchiveWriter.EncodedEntry encode(ByteBuffer data) {
+        try {
+            return compressor.encode(algorithmName, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            BufferPool.getDefault().release(data);
+        }
+    }
+
+    // Virtual threads when the runtime has them (JDK 21+), looked up
+    // reflectively so the code still builds and runs on JDK 17.
+    static ExecutorService newIoExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(IO_THREADS, task -> {
+                Thread thread = new Thread(task, "archive-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void acquire(long bytes) throws InterruptedException {
+        synchronized (budgetLock) {
+            while (inFlightBytes > 0 && inFlightBytes + bytes > maxInFlightBytes) {
+                budgetLock.wait();
+            }
+            inFlightBytes += bytes;
+        }
+    }
+
+    private void adjust(long bytes) {
+        synchronized (budgetLock) {
+            inFlightBytes += bytes;
+        }
+    }
+
+    private void release(long bytes) {
+        synchronized (budgetLock) {
+            inFlightBytes -= bytes;
+            budgetLock.notifyAll();
+        }
+    }
+
+    private static Item take(BlockingQueue<Item> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reader");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Entry point for using the compressor as a library. Nothing here or below it
+// depends on JavaFX; FileCompressionApp and EasyArchiveCli are both thin
+// layers over these calls.
+public final class EasyArchive {
+    private EasyArchive() {
+    }
+
+    // Names accepted by compress: Auto followed by every registered algorithm.
+    // The registered pipeline is left out; it is there to decode every chain,
+    // and its default chain is what BWT already does. Chains are chosen by spec
+    // such as "delta+rle+huffman" instead.
+    public static List<String> getAlgorithmNames() {
+        List<String> names = new ArrayList<>();
+        names.add(FileCompressor.AUTO);
+        for (CompressionAlgorithm algorithm : AlgorithmRegistry.getDefault().getAlgorithms()) {
+            if (!(algorithm instanceof CodecPipeline)) {
+                names.add(algorithm.getAlgorithmName());
+            }
+        }
+        return names;
+    }
+
+    // The registered algorithm with the given id, name, or unique name prefix
+    // (ignoring case), e.g. "6", "huffman" or "lempel"; for driving a codec
+    // directly on arrays or streams.
+    public static CompressionAlgorithm getAlgorithm(String query) {
+        return AlgorithmRegistry.getDefault().find(query);
+    }
+
+    // Writes files into a new archive using one compression worker per core.
+    // Directories are stored with everything below them (see EntryNames). The
+    // compressor carries the block size and context order settings.
+    public static List<ArchiveEntry> compress(FileCompressor compressor, String algorithmName, List<File> files,
+                                              File archive) throws IOException {
+        List<File> sources = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (File file : files) {
+            EntryNames.add(file, sources, names);
+        }
+        // A directory holding the archive would otherwise store it half-written.
+        Path archivePath = archive.toPath().toAbsolutePath().normalize();
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            if (sources.get(i).toPath().toAbsolutePath().normalize().equals(archivePath)) {
+                sources.remove(i);
+                names.remove(i);
+            }
+        }
+        EntryNames.checkUnique(names);
+        ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (ArchiveWriter writer = new ArchiveWriter(new FileOutputStream(archive))) {
+            return new CompressionPipeline(compressor, algorithmName, workers,
+                    CompressionPipeline.DEFAULT_MAX_IN_FLIGHT_BYTES).run(sources, names, writer, null);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Restores an archive or a single compressed file into outputDirectory,
+    // failing rather than overwriting a file that is already there.
+    public static List<File> extract(File compressedFile, File outputDirectory) throws IOException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create directory " + outputDirectory);
+        }
+        return new FileDecompressor().decompressAll(compressedFile, outputDirectory);
+    }
+
+    public static List<ArchiveEntry> list(File archive) throws IOException {
+        try (ArchiveReader reader = new ArchiveReader(archive.toPath())) {
+            return reader.getEntries();
+        }
+    }
+
+    // Decompresses every entry without writing it anywhere, checking sizes and
+    // CRC-32s; throws on the first corrupt entry.
+    public static void test(File archive) throws IOException {
+        try (ArchiveReader reader = new ArchiveReader(archive.toPath())) {
+            for (ArchiveEntry entry : reader.getEntries()) {
+                reader.extract(entry, OutputStream.nullOutputStream());
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package easyarchive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Headless front end for batch use:
+//
+//   compress [-a algorithm] [-b block-size] [-c context-order] [-l level] archive file-or-directory...
+//   decompress archive [directory]
+//   list archive
+//   test archive
+//   bench [-a algorithm] file...
+//
+// Exit status is 0 on success, 1 on an I/O or data error and 2 on bad usage.
+public class EasyArchiveCli {
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_USAGE = 2;
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0) {
+            usage(err);
+            return EXIT_USAGE;
+        }
+        List<String> arguments = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        try {
+            switch (args[0]) {
+                case "compress":
+                    return compress(arguments, out);
+                case "decompress":
+                    return decompress(arguments, out);
+                case "list":
+                    return list(arguments, out);
+                case "test":
+                    return test(arguments, out);
+                case "bench":
+                    return bench(arguments, out);
+                default:
+                    usage(err);
+                    return EXIT_USAGE;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return EXIT_USAGE;
+        } catch (NoSuchFileException e) {
+            err.println("error: no such file: " + e.getFile());
+            return EXIT_ERROR;
+        } catch (IOException e) {
+            err.println("error: " + e.getMessage());
+            return EXIT_ERROR;
+        } catch (RuntimeException e) {
+            err.println("error: " + e);
+            return EXIT_ERROR;
+        }
+    }
+
+    private static int compress(List<String> arguments, PrintStream out) throws IOException {
+        FileCompressor compressor = new FileCompressor();
+        String algorithmName = FileCompressor.AUTO;
+        while (!arguments.isEmpty() && arguments.get(0).startsWith("-")) {
+            String option = arguments.remove(0);
+            String value = optionValue(option, arguments);
+            switch (option) {
+                case "-a":
+                    algorithmName = algorithmName(value);
+                    break;
+                case "-b":
+                    compressor.setBlockSize(parseInt(option, value));
+                    break;
+                case "-c":
+                    compressor.setContextOrder(parseInt(option, value));
+                    break;
+                case "-l":
+                    compressor.setLevel(parseInt(option, value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (arguments.size() < 2) {
+            throw new IllegalArgumentException("usage: compress [-a algorithm] [-b block-size] [-c context-order] [-l level] archive file-or-directory...");
+        }
+        File archive = new File(arguments.get(0));
+        List<File> files = new ArrayList<>();
+        for (String name : arguments.subList(1, arguments.size())) {
+            files.add(new File(name));
+        }
+
+        List<ArchiveEntry> entries = EasyArchive.compress(compressor, algorithmName, files, archive);
+        long originalSize = 0;
+        for (ArchiveEntry entry : entries) {
+            originalSize += entry.getOriginalSize();
+        }
+        out.printf("%d files, %d -> %d bytes%n", entries.size(), originalSize, Files.size(archive.toPath()));
+        return 0;
+    }
+
+    private static int decompress(List<String> arguments, PrintStream out) throws IOException {
+        if (arguments.isEmpty() || arguments.size() > 2) {
+            throw new IllegalArgumentException("usage: decompress archive [directory]");
+        }
+        File directory = new File(arguments.size() == 2 ? arguments.get(1) : ".");
+        for (File file : EasyArchive.extract(new File(arguments.get(0)), directory)) {
+            out.println(file.getPath());
+        }
+        return 0;
+    }
+
+    private static int list(List<String> arguments, PrintStream out) throws IOException {
+        if (arguments.size() != 1) {
+            throw new IllegalArgumentException("usage: list archive");
+        }
+        try (ArchiveReader reader = new ArchiveReader(new File(arguments.get(0)).toPath())) {
+            out.printf("%12s %12s  %-30s %s%n", "Size", "Compressed", "Algorithm", "Name");
+            for (ArchiveEntry entry : reader.getEntries()) {
+                out.printf("%12d %12d  %-30s %s%n", entry.getOriginalSize(), entry.getCompressedSize(),
+                        reader.getAlgorithmName(entry), entry.getName());
+            }
+        }
+        return 0;
+    }
+
+    private static int test(List<String> arguments, PrintStream out) throws IOException {
+        if (arguments.size() != 1) {
+            throw new IllegalArgumentException("usage: test archive");
+        }
+        EasyArchive.test(new File(arguments.get(0)));
+        out.println("OK");
+        return 0;
+    }
+
+    // Rough single-shot timings of each algorithm on the given files, for
+    // choosing an algorithm on a server; the JMH suite is the reference.
+    private static int bench(List<String> arguments, PrintStream out) throws IOException {
+        List<CompressionAlgorithm> algorithms = AlgorithmRegistry.getDefault().getAlgorithms();
+        if (arguments.size() > 2 && arguments.get(0).equals("-a")) {
+            arguments.remove(0);
+            String name = algorithmName(arguments.remove(0));
+            algorithms = List.of(AlgorithmRegistry.getDefault().contains(name)
+                    ? AlgorithmRegistry.getDefault().get(name) : CodecPipeline.parse(name));
+        }
+        if (arguments.isEmpty()) {
+            throw new IllegalArgumentException("usage: bench [-a algorithm] file...");
+        }
+
+        out.printf("%-30s %-24s %12s %8s %10s %10s%n", "Algorithm", "File", "Size", "Ratio", "Comp MB/s", "Decomp MB/s");
+        for (String name : arguments) {
+            byte[] data = Files.readAllBytes(new File(name).toPath());
+            for (CompressionAlgorithm algorithm : algorithms) {
+                long start = System.nanoTime();
+                byte[] compressed = algorithm.compress(data);
+                long compressTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                byte[] restored = algorithm.decompress(compressed);
+                long decompressTime = System.nanoTime() - start;
+                if (!Arrays.equals(data, restored)) {
+                    throw new IOException(algorithm.getAlgorithmName() + " did not round-trip " + name);
+                }
+                out.printf("%-30s %-24s %12d %8.3f %10.1f %10.1f%n", algorithm.getAlgorithmName(),
+                        new File(name).getName(), data.length, (double) compressed.length / Math.max(1, data.length),
+                        megabytesPerSecond(data.length, compressTime), megabytesPerSecond(data.length, decompressTime));
+            }
+        }
+        return 0;
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return bytes / 1e6 / Math.max(nanos, 1) * 1e9;
+    }
+
+    // Accepts a numeric algorithm id or a case-insensitive prefix of exactly one
+    // algorithm name, e.g. "auto", "huffman" or "lempel", or a pipeline spec
+    // such as "bwt+mtf+zrle+arithmetic".
+    private static String algorithmName(String value) {
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            return AlgorithmRegistry.getDefault().get(Integer.parseInt(value)).getAlgorithmName();
+        }
+        String prefix = value.toLowerCase(Locale.ROOT);
+        List<String> matches = new ArrayList<>();
+        for (String name : EasyArchive.getAlgorithmNames()) {
+            if (name.equalsIgnoreCase(value)) {
+                return name;
+            }
+            if (!prefix.isEmpty() && name.toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                matches.add(name);
+            }
+        }
+        if (matches.size() == 1) {
+            return matches.get(0);
+        }
+        if (value.indexOf('+') >= 0) {
+            CodecPipeline.parse(value);
+            return value;
+        }
+        throw new IllegalArgumentException("Unknown algorithm " + value + "; expected one of "
+                + EasyArchive.getAlgorithmNames() + " or an algorithm id");
+    }
+
+    private static String optionValue(String option, List<String> arguments) {
+        if (arguments.isEmpty()) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return arguments.remove(0);
+    }
+
+    private static int parseInt(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+        }
+    }
+
+    private static void usage(PrintStream err) {
+        err.println("usage: EasyArchiveCli <command> [arguments]");
+        err.println("  compress [-a algorithm] [-b block-size] [-c context-order] [-l level] archive file-or-directory...");
+        err.println("  decompress archive [directory]");
+        err.println("  list archive");
+        err.println("  test archive");
+        err.println("  bench [-a algorithm] file...");
+        err.println("Algorithms: " + EasyArchive.getAlgorithmNames() + " (or a unique prefix) or numeric ids");
+        err.println("Pipelines: transforms (delta, mtf, bwt, rle, zrle) and an algorithm joined by '+', e.g. bwt+mtf+zrle+huffman");
+    }
+}
@@ -0,0 +1,98 @@
+package easyarchive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Names of archive entries: relative paths with '/' separators and no empty,
+// "." or ".." segments, so an entry always extracts inside the output
+// directory. A file is stored under its own name and the files below a
+// directory under the directory's name followed by their relative path, so
+// "a/x.txt" and "b/x.txt" given as directories a and b stay apart.
+final class EntryNames {
+    private EntryNames() {
+    }
+
+    static boolean isValid(String name) {
+        if (name.isEmpty() || name.indexOf('\\') >= 0 || name.indexOf('\0') >= 0) {
+            return false;
+        }
+        for (String segment : name.split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The name of each file; for callers that only pass regular files.
+    static List<String> of(List<File> files) {
+        List<String> names = new ArrayList<>(files.size());
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    // Adds file, or every regular file below it if it is a directory, to files
+    // with its entry name in names.
+    static void add(File file, List<File> files, List<String> names) throws IOException {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        Path fileName = path.getFileName();
+        String prefix = fileName == null ? "" : fileName + "/";
+        if (Files.isRegularFile(path)) {
+            files.add(file);
+            names.add(fileName == null ? file.getName() : fileName.toString());
+        } else if (Files.isDirectory(path)) {
+            List<Path> children;
+            try (Stream<Path> walk = Files.walk(path)) {
+                children = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path child : children) {
+                files.add(child.toFile());
+                names.add(prefix + path.relativize(child).toString().replace(File.separatorChar, '/'));
+            }
+        } else {
+            throw new IOException(file + " is not a regular file or directory");
+        }
+    }
+
+    static void checkUnique(List<String> names) {
+        Set<String> seen = new HashSet<>();
+        for (String name : names) {
+            if (!isValid(name)) {
+                throw new IllegalArgumentException("Invalid entry name: " + name);
+            }
+            if (!seen.add(name)) {
+                throw new IllegalArgumentException("Two files would be stored as " + name);
+            }
+        }
+    }
+
+    // Where an entry read from an archive goes under directory. Parent
+    // directories are created; an existing file is an error rather than being
+    // overwritten.
+    static Path resolve(Path directory, String name) throws IOException {
+        if (!isValid(name)) {
+            throw new IOException("Unsafe entry name: " + name);
+        }
+        Path base = directory.toAbsolutePath().normalize();
+        Path target = base.resolve(name).normalize();
+        if (!target.startsWith(base) || target.equals(base)) {
+            throw new IOException("Unsafe entry name: " + name);
+        }
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException(target + " already exists");
+        }
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+}
@@ -1,8 +1,11 @@
+package easyarchive;
+
 import javafx.animation.FadeTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
@@ -17,7 +20,10 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.shape.SVGPath;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FileCompressionApp extends Application {
     private Label statusLabel;
@@ -67,12 +73,7 @@ public class FileCompressionApp extends Application {
         subtitleLabel.setStyle("-fx-text-fill: #757575;");
 
         compressionLevelBox = new ComboBox<>();
-        compressionLevelBox.getItems().addAll(
-                "Arithmetic Algorithm",
-                "Run-Length Encoding Algorithm",
-                "Huffman Coding Algorithm",
-                "Golomb code alggorithm",
-                "Lempel-Ziv-Welch Algorithm");
+        compressionLevelBox.getItems().addAll(EasyArchive.getAlgorithmNames());
         compressionLevelBox.setValue("Huffman Coding Algorithm");
         compressionLevelBox.setStyle("-fx-background-color: white;" +
                 "-fx-border-color: #e0e0e0;" +
@@ -304,7 +305,40 @@ public class FileCompressionApp extends Application {
     }
 
     private void decompressFiles() {
-        statusLabel.setText("Decompression feature will be implemented soon.");
+        if (selectedFiles == null || selectedFiles.isEmpty()) {
+            statusLabel.setText("No archive selected.");
+            return;
+        }
+
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Destination Folder");
+        File destination = directoryChooser.showDialog(null);
+        if (destination == null) {
+            statusLabel.setText("No destination folder selected.");
+            return;
+        }
+
+        List<File> archives = selectedFiles;
+        statusLabel.setText("Decompressing...");
+
+        Thread decompressionThread = new Thread(() -> {
+            int extractedFiles = 0;
+            try {
+                FileDecompressor fileDecompressor = new FileDecompressor();
+                for (File archiveFile : archives) {
+                    extractedFiles += fileDecompressor.decompressAll(archiveFile, destination).size();
+                }
+                final int totalExtracted = extractedFiles;
+                Platform.runLater(() -> statusLabel.setText(
+                        totalExtracted + " files decompressed to: " + destination.getAbsolutePath()));
+            } catch (IOException | RuntimeException e) {
+                // A bug in a codec must still reach the user rather than die with the thread.
+                final String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
+                Platform.runLater(() -> statusLabel.setText("Error decompressing file: " + errorMessage));
+            }
+        });
+
+        decompressionThread.start();
     }
 
     private void compressFiles(List<File> files) {
@@ -416,79 +450,45 @@ public class FileCompressionApp extends Application {
 
             progressStage.show();
 
-            final boolean[] isCancelled = { false };
+            ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            CompressionPipeline pipeline = new CompressionPipeline(new FileCompressor(),
+                    compressionLevelBox.getValue(), workers, CompressionPipeline.DEFAULT_MAX_IN_FLIGHT_BYTES);
 
             cancelButton.setOnAction(e -> {
-                isCancelled[0] = true;
+                pipeline.cancel();
                 progressStage.close();
             });
 
             Thread compressionThread = new Thread(() -> {
-                try {
-                    Thread.sleep(5000);
-                    FileCompressor fileCompressor = new FileCompressor();
-                    String compressedFilePath = binaryFile.getAbsolutePath();
-                    int totalFiles = files.size();
-
-                    for (int i = 0; i < files.size(); i++) {
-                        if (isCancelled[0]) {
-                            Platform.runLater(() -> statusLabel.setText("Compression cancelled."));
-                            break;
-                        }
-
-                        File file = files.get(i);
-                        final int currentIndex = i;
-
-                        Platform.runLater(() -> {
-                            double progress = (double) currentIndex / totalFiles;
-                            progressBar.setProgress(progress);
-                            progressLabel.setText("Compressing: " + file.getName());
-                        });
-
-                        try {
-                            switch (compressionLevelBox.getValue()) {
-                                case "Arithmetic Algorithm":
-                                    fileCompressor.compress("Arithmetic Algorithm", file, compressedFilePath);
-                                    break;
-                                case "Run-Length Encoding Algorithm":
-                                    fileCompressor.compress("Run-Length Encoding Algorithm", file, compressedFilePath);
-                                    break;
-                                case "Huffman Coding Algorithm":
-                                    fileCompressor.compress("Huffman Coding Algorithm", file, compressedFilePath);
-                                    break;
-                                case "Golomb code alggorithm":
-                                    fileCompressor.compress("Golomb code alggorithm", file, compressedFilePath);
-                                    break;
-                                case "Lempel-Ziv-Welch Algorithm":
-                                    fileCompressor.compress("Lempel-Ziv-Welch Algorithm", file, compressedFilePath);
-                                    break;
-                                default:
-                                    fileCompressor.compress("Huffman Coding Algorithm", file, compressedFilePath);
-                            }
-                        } catch (IOException e) {
-                            final String errorMessage = e.getMessage();
+                int totalFiles = files.size();
+                try (ArchiveWriter archive = new ArchiveWriter(Files.newOutputStream(binaryFile.toPath()))) {
+                    List<ArchiveEntry> entries = pipeline.run(files, archive, (index, file, entry) ->
                             Platform.runLater(() -> {
-                                statusLabel.setText("Error compressing file: " + errorMessage);
-                                progressStage.close();
-                            });
-                            return;
-                        }
-                    }
-                    if (!isCancelled[0]) {
-                        Platform.runLater(() -> {
+                                progressBar.setProgress((double) (index + 1) / totalFiles);
+                                progressLabel.setText("Compressed: " + file.getName());
+                            }));
+                    boolean completed = entries.size() == totalFiles;
+                    Platform.runLater(() -> {
+                        if (completed) {
                             progressBar.setProgress(1.0);
                             statusLabel.setText("Files compressed successfully to: " + binaryFile.getAbsolutePath());
-                            progressStage.close();
-                        });
-                    }
-                } catch (Exception e) {
+                        } else {
+                            statusLabel.setText("Compression cancelled.");
+                        }
+                        progressStage.close();
+                    });
+                } catch (IOException | RuntimeException e) {
+                    String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
                     Platform.runLater(() -> {
-                        statusLabel.setText("Error during compression: " + e.getMessage());
+                        statusLabel.setText("Error compressing files: " + errorMessage);
                         progressStage.close();
                     });
+                } finally {
+                    workers.shutdownNow();
                 }
             });
 
+            compressionThread.setDaemon(true);
             compressionThread.start();
 
         } else {
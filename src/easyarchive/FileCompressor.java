@@ -0,0 +1,1690 @@
+package easyarchive;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+
+class StoredCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        input.transferTo(output);
+        output.flush();
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        input.transferTo(output);
+        output.flush();
+    }
+
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        return inputLength;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "Store (No Compression)";
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 0;
+    }
+}
+
+
+// Range coder over one of two models, chosen by the context order and recorded
+// in the first byte of the stream.
+//
+// Order 0 is a static model built per block: symbol frequencies are scaled to a
+// total of 2^15 and a block is its original length, coded length, a 256-bit map
+// of present symbols, their 16-bit frequencies and the coded data.
+//
+// Orders 1 and 2 are adaptive: each byte is coded as eight binary decisions
+// down a bit tree whose probabilities are selected by the previous one or two
+// bytes. Order-2 contexts are hashed into a fixed table, so the model never
+// takes more than CONTEXT_SLOTS * 256 probabilities (8 MB) and every byte costs
+// exactly eight coder steps. A block is its original length, coded length and
+// the coded data; the model carries over from block to block.
+//
+// In both cases the stream ends with a zero original length.
+class ArithmeticCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    static final int TOTAL_BITS = 15;
+    static final int TOTAL = 1 << TOTAL_BITS;
+    static final int MAX_ORDER = 2;
+    private static final int CONTEXT_HASH_BITS = 14;
+    private static final CodecContext.Slot CODED = new CodecContext.Slot();
+    private static final CodecContext.Slot CODED_INPUT = new CodecContext.Slot();
+    private static final CodecContext.Slot SYMBOL_AT = new CodecContext.Slot();
+    private static final CodecContext.Slot CONTEXT_TABLE = new CodecContext.Slot();
+
+    private final int order;
+
+    ArithmeticCompressionAlgorithm() {
+        this(0);
+    }
+
+    ArithmeticCompressionAlgorithm(int order) {
+        if (order < 0 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("Context order must be between 0 and " + MAX_ORDER);
+        }
+        this.order = order;
+    }
+
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeByte(order);
+        if (order == 0) {
+            compressStatic(input, dataOutput);
+        } else {
+            compressAdaptive(input, dataOutput);
+        }
+        dataOutput.writeInt(0);
+        dataOutput.flush();
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        int storedOrder = dataInput.read();
+        if (storedOrder == 0) {
+            decompressStatic(dataInput, output);
+        } else if (storedOrder > 0 && storedOrder <= MAX_ORDER) {
+            decompressAdaptive(storedOrder, dataInput, output);
+        } else {
+            throw new IOException("Unsupported arithmetic context order: " + storedOrder);
+        }
+        output.flush();
+    }
+
+    private void compressStatic(InputStream input, DataOutputStream dataOutput) throws IOException {
+        ByteArrayOutputStream coded = CodecContext.current().output(CODED);
+        byte[] block = blockBuffer();
+        int[] counts = new int[256];
+        int[] frequencies = new int[256];
+        int[] cumulative = new int[257];
+        int length;
+        while ((length = input.readNBytes(block, 0, block.length)) > 0) {
+            Arrays.fill(counts, 0);
+            ByteHistogram.count(block, 0, length, counts);
+            scaleFrequencies(counts, length, frequencies);
+            for (int symbol = 0; symbol < 256; symbol++) {
+                cumulative[symbol + 1] = cumulative[symbol] + frequencies[symbol];
+            }
+
+            coded.reset();
+            RangeEncoder encoder = new RangeEncoder(coded);
+            for (int i = 0; i < length; i++) {
+                int symbol = block[i] & 0xFF;
+                encoder.encode(cumulative[symbol], frequencies[symbol], TOTAL_BITS);
+            }
+            encoder.finish();
+
+            dataOutput.writeInt(length);
+            dataOutput.writeInt(coded.size());
+            for (int i = 0; i < 256; i += 8) {
+                int present = 0;
+                for (int bit = 0; bit < 8; bit++) {
+                    if (frequencies[i + bit] > 0) {
+                        present |= 0x80 >>> bit;
+                    }
+                }
+                dataOutput.writeByte(present);
+            }
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (frequencies[symbol] > 0) {
+                    dataOutput.writeShort(frequencies[symbol]);
+                }
+            }
+            coded.writeTo(dataOutput);
+        }
+    }
+
+    private void decompressStatic(DataInputStream dataInput, OutputStream output) throws IOException {
+        CodecContext context = CodecContext.current();
+        byte[] block = blockBuffer();
+        byte[] present = new byte[32];
+        int[] frequencies = new int[256];
+        int[] cumulative = new int[257];
+        byte[] symbolAt = context.bytes(SYMBOL_AT, TOTAL);
+        int length;
+        while ((length = dataInput.readInt()) != 0) {
+            int codedLength = dataInput.readInt();
+            if (length < 0 || length > BLOCK_SIZE || codedLength < 0
+                    || codedLength > maxCodedLength(0, length)) {
+                throw new IOException("Corrupt arithmetic block header");
+            }
+
+            Arrays.fill(frequencies, 0);
+            dataInput.readFully(present);
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if ((present[symbol >>> 3] & (0x80 >>> (symbol & 7))) != 0) {
+                    frequencies[symbol] = dataInput.readUnsignedShort();
+                }
+            }
+            for (int symbol = 0; symbol < 256; symbol++) {
+                cumulative[symbol + 1] = cumulative[symbol] + frequencies[symbol];
+            }
+            if (cumulative[256] != TOTAL) {
+                throw new IOException("Corrupt arithmetic frequency table");
+            }
+            for (int symbol = 0; symbol < 256; symbol++) {
+                Arrays.fill(symbolAt, cumulative[symbol], cumulative[symbol + 1], (byte)symbol);
+            }
+
+            byte[] coded = context.bytes(CODED_INPUT, codedLength);
+            dataInput.readFully(coded, 0, codedLength);
+            RangeDecoder decoder = new RangeDecoder(coded, 0, codedLength);
+            for (int i = 0; i < length; i++) {
+                int symbol = symbolAt[decoder.decodeFrequency(TOTAL_BITS)] & 0xFF;
+                decoder.update(cumulative[symbol], frequencies[symbol]);
+                block[i] = (byte)symbol;
+            }
+            output.write(block, 0, length);
+        }
+    }
+
+    private void compressAdaptive(InputStream input, DataOutputStream dataOutput) throws IOException {
+        ByteArrayOutputStream coded = CodecContext.current().output(CODED);
+        byte[] block = blockBuffer();
+        short[] probabilities = newContextTable(order);
+        int history = 0;
+        int length;
+        while ((length = input.readNBytes(block, 0, block.length)) > 0) {
+            coded.reset();
+            RangeEncoder encoder = new RangeEncoder(coded);
+            for (int i = 0; i < length; i++) {
+                int symbol = block[i] & 0xFF;
+                int base = contextSlot(order, history) << 8;
+                int node = 1;
+                for (int bit = 7; bit >= 0; bit--) {
+                    int value = (symbol >>> bit) & 1;
+                    encoder.encodeBit(probabilities, base + node, value);
+                    node = (node << 1) | value;
+                }
+                history = (history << 8) | symbol;
+            }
+            encoder.finish();
+
+            dataOutput.writeInt(length);
+            dataOutput.writeInt(coded.size());
+            coded.writeTo(dataOutput);
+        }
+    }
+
+    private void decompressAdaptive(int storedOrder, DataInputStream dataInput, OutputStream output) throws IOException {
+        CodecContext context = CodecContext.current();
+        byte[] block = blockBuffer();
+        short[] probabilities = newContextTable(storedOrder);
+        int history = 0;
+        int length;
+        while ((length = dataInput.readInt()) != 0) {
+            int codedLength = dataInput.readInt();
+            if (length < 0 || length > BLOCK_SIZE || codedLength < 0
+                    || codedLength > maxCodedLength(storedOrder, length)) {
+                throw new IOException("Corrupt arithmetic block header");
+            }
+            byte[] coded = context.bytes(CODED_INPUT, codedLength);
+            dataInput.readFully(coded, 0, codedLength);
+
+            RangeDecoder decoder = new RangeDecoder(coded, 0, codedLength);
+            for (int i = 0; i < length; i++) {
+                int base = contextSlot(storedOrder, history) << 8;
+                int node = 1;
+                while (node < 256) {
+                    node = (node << 1) | decoder.decodeBit(probabilities, base + node);
+                }
+                int symbol = node & 0xFF;
+                block[i] = (byte)symbol;
+                history = (history << 8) | symbol;
+            }
+            output.write(block, 0, length);
+        }
+    }
+
+    private static short[] newContextTable(int order) {
+        int slots = order == 1 ? 256 : 1 << CONTEXT_HASH_BITS;
+        short[] probabilities = CodecContext.current().shorts(CONTEXT_TABLE, slots << 8);
+        Arrays.fill(probabilities, 0, slots << 8, (short)(RangeEncoder.PROBABILITY_ONE / 2));
+        return probabilities;
+    }
+
+    private static int contextSlot(int order, int history) {
+        if (order == 1) {
+            return history & 0xFF;
+        }
+        return ((history & 0xFFFF) * 0x9E3779B1) >>> (32 - CONTEXT_HASH_BITS);
+    }
+
+    // Scales counts to frequencies summing to TOTAL, keeping every present
+    // symbol at a frequency of at least 1.
+    static void scaleFrequencies(int[] counts, int length, int[] frequencies) {
+        int sum = 0;
+        int largest = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (counts[symbol] == 0) {
+                frequencies[symbol] = 0;
+                continue;
+            }
+            frequencies[symbol] = (int)Math.max(1, (long)counts[symbol] * TOTAL / length);
+            sum += frequencies[symbol];
+            if (frequencies[symbol] > frequencies[largest]) {
+                largest = symbol;
+            }
+        }
+        if (sum < TOTAL) {
+            frequencies[largest] += TOTAL - sum;
+        }
+        while (sum > TOTAL) {
+            largest = 0;
+            for (int symbol = 1; symbol < 256; symbol++) {
+                if (frequencies[symbol] > frequencies[largest]) {
+                    largest = symbol;
+                }
+            }
+            frequencies[largest]--;
+            sum--;
+        }
+    }
+
+    // Order 0 gives every present symbol a frequency of at least 1, so a byte
+    // costs at most TOTAL_BITS plus rounding. The adaptive probabilities never
+    // drop below 15 / PROBABILITY_ONE, so each of a byte's eight decisions
+    // costs under 8 bits. Both add a few bytes for the coder's flush.
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        return 1 + blockBound(inputLength, BLOCK_SIZE, length -> order == 0
+                ? 8 + 32 + 2 * 256 + maxCodedLength(order, length)
+                : 8 + maxCodedLength(order, length)) + 4;
+    }
+
+    // Range coder output for one block, which bounds what a decoder reads.
+    static long maxCodedLength(int order, long length) {
+        return order == 0 ? (length * (TOTAL_BITS + 1) + 7) / 8 + 8 : 8 * length + 8;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "Arithmetic Coding Algorithm";
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 1;
+    }
+}
+
+
+// Run-length coding with literal and repeat tokens. A token starts with a
+// varint header h: an even h is a literal run of h / 2 + 1 bytes copied as they
+// are, an odd h a repeat run of h / 2 + MIN_RUN copies of the byte that
+// follows. Runs shorter than MIN_RUN stay in literal runs, so data without
+// repetition grows by a few bytes per block instead of doubling.
+//
+// A block is its original length and coded length as varints, then its
+// tokens; the stream ends with a zero original length. Both sides work on whole
+// preallocated block buffers, expanding repeats with Arrays.fill and literals
+// with System.arraycopy.
+class RunLengthCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    static final int MIN_RUN = 3;
+    private static final CodecContext.Slot CODED = new CodecContext.Slot();
+
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        byte[] block = blockBuffer();
+        byte[] coded = CodecContext.current().bytes(CODED, maxCodedLength(BLOCK_SIZE));
+        int length;
+        while ((length = input.readNBytes(block, 0, block.length)) > 0) {
+            int codedLength = encodeBlock(block, length, coded);
+            writeVarint(output, length);
+            writeVarint(output, codedLength);
+            output.write(coded, 0, codedLength);
+        }
+        writeVarint(output, 0);
+        output.flush();
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        byte[] block = blockBuffer();
+        byte[] coded = CodecContext.current().bytes(CODED, maxCodedLength(BLOCK_SIZE));
+        int length;
+        while ((length = readVarint(input)) != 0) {
+            int codedLength = readVarint(input);
+            if (length < 0 || length > BLOCK_SIZE || codedLength < 0 || codedLength > coded.length) {
+                throw new IOException("Corrupt run-length block header");
+            }
+            if (input.readNBytes(coded, 0, codedLength) != codedLength) {
+                throw new EOFException("Truncated run-length data");
+            }
+            decodeBlock(coded, codedLength, block, length);
+            output.write(block, 0, length);
+        }
+        output.flush();
+    }
+
+    static int maxCodedLength(int length) {
+        return length + length / 2 + 16;
+    }
+
+    static int encodeBlock(byte[] block, int length, byte[] coded) {
+        int position = 0;
+        int literalStart = 0;
+        int i = 0;
+        while (i < length) {
+            int mismatch = Arrays.mismatch(block, i + 1, length, block, i, length - 1);
+            int run = mismatch == -1 ? length - i : mismatch + 1;
+            if (run < MIN_RUN) {
+                i += run;
+                continue;
+            }
+            position = writeLiterals(block, literalStart, i, coded, position);
+            position = putVarint(coded, position, ((run - MIN_RUN) << 1) | 1);
+            coded[position++] = block[i];
+            i += run;
+            literalStart = i;
+        }
+        return writeLiterals(block, literalStart, length, coded, position);
+    }
+
+    static void decodeBlock(byte[] coded, int codedLength, byte[] block, int length) throws IOException {
+        int position = 0;
+        int output = 0;
+        while (position < codedLength) {
+            int header = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (position == codedLength || shift > 28) {
+                    throw new IOException("Corrupt run-length token");
+                }
+                int b = coded[position++];
+                header |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+
+            if ((header & 1) == 0) {
+                int run = (header >>> 1) + 1;
+                if (run > length - output || run > codedLength - position) {
+                    throw new IOException("Corrupt run-length literal run");
+                }
+                System.arraycopy(coded, position, block, output, run);
+                position += run;
+                output += run;
+            } else {
+                int run = (header >>> 1) + MIN_RUN;
+                if (run > length - output || position == codedLength) {
+                    throw new IOException("Corrupt run-length repeat run");
+                }
+                Arrays.fill(block, output, output + run, coded[position++]);
+                output += run;
+            }
+        }
+        if (output != length) {
+            throw new IOException("Corrupt run-length block: expected " + length + " bytes but got " + output);
+        }
+    }
+
+    private static int writeLiterals(byte[] block, int start, int end, byte[] coded, int position) {
+        if (start == end) {
+            return position;
+        }
+        position = putVarint(coded, position, (end - start - 1) << 1);
+        System.arraycopy(block, start, coded, position, end - start);
+        return position + end - start;
+    }
+
+    private static int putVarint(byte[] coded, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            coded[position++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        coded[position++] = (byte)value;
+        return position;
+    }
+
+    static void writeVarint(OutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    static int readVarint(InputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= 28; shift += 7) {
+            int b = input.read();
+            if (b == -1) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt varint");
+    }
+
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        return blockBound(inputLength, BLOCK_SIZE, length -> 10 + maxCodedLength((int) length)) + 1;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "Run-Length Encoding Algorithm";
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 2;
+    }
+}
+
+
+class HuffmanCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    static final int MAX_CODE_LENGTH = 15;
+    static final int PRIMARY_BITS = 10;
+    static final int SECONDARY_BITS = MAX_CODE_LENGTH - PRIMARY_BITS;
+    static final int SECONDARY_MASK = (1 << SECONDARY_BITS) - 1;
+    static final int DECODE_TABLE_SIZE = decodeTableSize(256);
+
+    // Canonical codes are built per block of BLOCK_SIZE bytes, so only one block
+    // is held in memory at a time. A block is its original length (32 bits), the
+    // code lengths (see writeCodeLengths) and the code bits padded to a byte. The
+    // stream ends with a zero original length.
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        BitWriter writer = new BitWriter(output);
+        byte[] block = blockBuffer();
+        int[] frequencies = new int[256];
+        int[] lengths = new int[256];
+        int[] codes = new int[256];
+        int length;
+        while ((length = input.readNBytes(block, 0, block.length)) > 0) {
+            Arrays.fill(frequencies, 0);
+            ByteHistogram.count(block, 0, length, frequencies);
+            buildCodeLengths(frequencies, lengths);
+            buildCanonicalCodes(lengths, codes);
+
+            writer.writeBits(length, 32);
+            writeCodeLengths(writer, lengths);
+
+            for (int i = 0; i < length; i++) {
+                int symbol = block[i] & 0xFF;
+                writer.writeBits(codes[symbol], lengths[symbol]);
+            }
+            writer.alignToByte();
+        }
+        writer.writeBits(0, 32);
+        writer.flush();
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        BitReader reader = new BitReader(input);
+        byte[] block = blockBuffer();
+        int[] lengths = new int[256];
+        int[] codes = new int[256];
+        int[] decodeTable = new int[DECODE_TABLE_SIZE];
+        int length;
+        while ((length = reader.readBits(32)) != 0) {
+            if (length < 0 || length > BLOCK_SIZE) {
+                throw new IOException("Corrupt Huffman block length: " + length);
+            }
+            readCodeLengths(reader, lengths);
+            buildCanonicalCodes(lengths, codes);
+            buildDecodeTable(lengths, codes, decodeTable);
+
+            // Each refill leaves at least 45 bits in the window, enough for three
+            // symbols of the longest code length.
+            int i = 0;
+            while (i < length) {
+                reader.ensure(3 * MAX_CODE_LENGTH);
+                int end = Math.min(length, i + 3);
+                for (; i < end; i++) {
+                    block[i] = (byte) decodeSymbol(reader, decodeTable);
+                }
+            }
+            reader.alignToByte();
+            output.write(block, 0, length);
+        }
+        output.flush();
+    }
+
+    // Code lengths go out as 4-bit values in symbol order. A zero is followed by
+    // a second nibble holding the number of further unused symbols (0-15), so a
+    // byte alphabet's table takes at most 128 bytes and sparse ones only a few.
+    // The helpers below work on any alphabet size, taken from the array length.
+    static void writeCodeLengths(BitWriter writer, int[] lengths) throws IOException {
+        int symbol = 0;
+        while (symbol < lengths.length) {
+            if (lengths[symbol] != 0) {
+                writer.writeBits(lengths[symbol++], 4);
+                continue;
+            }
+            int run = 1;
+            while (run < 16 && symbol + run < lengths.length && lengths[symbol + run] == 0) {
+                run++;
+            }
+            writer.writeBits(0, 4);
+            writer.writeBits(run - 1, 4);
+            symbol += run;
+        }
+    }
+
+    // Reads lengths written by writeCodeLengths and checks that they form a
+    // usable prefix code, which also keeps the decode table in bounds.
+    static void readCodeLengths(BitReader reader, int[] lengths) throws IOException {
+        int symbol = 0;
+        while (symbol < lengths.length) {
+            int length = reader.readBits(4);
+            if (length != 0) {
+                lengths[symbol++] = length;
+                continue;
+            }
+            int run = reader.readBits(4) + 1;
+            if (symbol + run > lengths.length) {
+                throw new IOException("Corrupt Huffman code lengths");
+            }
+            Arrays.fill(lengths, symbol, symbol + run, 0);
+            symbol += run;
+        }
+
+        int kraftSum = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] != 0) {
+                kraftSum += 1 << (MAX_CODE_LENGTH - lengths[i]);
+            }
+        }
+        if (kraftSum == 0 || kraftSum > 1 << MAX_CODE_LENGTH) {
+            throw new IOException("Corrupt Huffman code lengths");
+        }
+    }
+
+    // Every code longer than PRIMARY_BITS may need its own subtable.
+    static int decodeTableSize(int alphabetSize) {
+        return (1 << PRIMARY_BITS) + (alphabetSize << SECONDARY_BITS);
+    }
+
+    // Decodes one symbol; the caller has ensured MAX_CODE_LENGTH bits.
+    static int decodeSymbol(BitReader reader, int[] decodeTable) throws IOException {
+        int entry = decodeTable[reader.peekBits(PRIMARY_BITS)];
+        int bits = entry & 0xFF;
+        if (bits == 0) {
+            if (entry == 0) {
+                throw new IOException("Corrupt Huffman code");
+            }
+            entry = decodeTable[(entry >>> 8) + (reader.peekBits(MAX_CODE_LENGTH) & SECONDARY_MASK)];
+            bits = entry & 0xFF;
+            if (bits == 0) {
+                throw new IOException("Corrupt Huffman code");
+            }
+        }
+        reader.skipBits(bits);
+        return entry >>> 8;
+    }
+
+    // Builds a two-level lookup table indexed by the next PRIMARY_BITS of input.
+    // An entry is (symbol << 8 | code length); codes longer than PRIMARY_BITS share
+    // a primary entry (subtable offset << 8, length 0) pointing at a subtable
+    // indexed by the remaining bits. A zero entry marks an unused code.
+    static void buildDecodeTable(int[] lengths, int[] codes, int[] decodeTable) {
+        Arrays.fill(decodeTable, 0);
+        int nextSubtable = 1 << PRIMARY_BITS;
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length == 0) {
+                continue;
+            }
+            int entry = (symbol << 8) | length;
+            if (length <= PRIMARY_BITS) {
+                int start = codes[symbol] << (PRIMARY_BITS - length);
+                Arrays.fill(decodeTable, start, start + (1 << (PRIMARY_BITS - length)), entry);
+            } else {
+                int extraBits = length - PRIMARY_BITS;
+                int prefix = codes[symbol] >>> extraBits;
+                if (decodeTable[prefix] == 0) {
+                    decodeTable[prefix] = nextSubtable << 8;
+                    nextSubtable += 1 << SECONDARY_BITS;
+                }
+                int start = (decodeTable[prefix] >>> 8)
+                        + ((codes[symbol] & ((1 << extraBits) - 1)) << (SECONDARY_BITS - extraBits));
+                Arrays.fill(decodeTable, start, start + (1 << (SECONDARY_BITS - extraBits)), entry);
+            }
+        }
+    }
+
+    // Computes Huffman code lengths no longer than MAX_CODE_LENGTH. Leaves are
+    // merged with the two-queue method over arrays; if the tree gets too deep the
+    // frequencies are halved and the tree rebuilt.
+    static void buildCodeLengths(int[] frequencies, int[] lengths) {
+        Arrays.fill(lengths, 0);
+        long[] sorted = new long[lengths.length];
+        int n = 0;
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (frequencies[symbol] > 0) {
+                sorted[n++] = ((long)frequencies[symbol] << 16) | symbol;
+            }
+        }
+        if (n == 0) {
+            return;
+        }
+        if (n == 1) {
+            lengths[(int)(sorted[0] & 0xFFFF)] = 1;
+            return;
+        }
+        Arrays.sort(sorted, 0, n);
+
+        long[] weight = new long[2 * n - 1];
+        int[] parent = new int[2 * n - 1];
+        int[] depth = new int[2 * n - 1];
+        while (true) {
+            for (int i = 0; i < n; i++) {
+                weight[i] = sorted[i] >>> 16;
+            }
+            int leaf = 0;
+            int internal = n;
+            for (int next = n; next < 2 * n - 1; next++) {
+                weight[next] = 0;
+                for (int k = 0; k < 2; k++) {
+                    int pick;
+                    if (leaf < n && (internal >= next || weight[leaf] <= weight[internal])) {
+                        pick = leaf++;
+                    } else {
+                        pick = internal++;
+                    }
+                    parent[pick] = next;
+                    weight[next] += weight[pick];
+                }
+            }
+
+            depth[2 * n - 2] = 0;
+            int maxDepth = 0;
+            for (int i = 2 * n - 3; i >= 0; i--) {
+                depth[i] = depth[parent[i]] + 1;
+                maxDepth = Math.max(maxDepth, depth[i]);
+            }
+            if (maxDepth <= MAX_CODE_LENGTH) {
+                for (int i = 0; i < n; i++) {
+                    lengths[(int)(sorted[i] & 0xFFFF)] = depth[i];
+                }
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                long frequency = ((sorted[i] >>> 16) + 1) >>> 1;
+                sorted[i] = (frequency << 16) | (sorted[i] & 0xFFFF);
+            }
+        }
+    }
+
+    // Assigns canonical codes: shorter codes first, ties broken by symbol value.
+    static void buildCanonicalCodes(int[] lengths, int[] codes) {
+        int[] lengthCounts = new int[MAX_CODE_LENGTH + 1];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            lengthCounts[lengths[symbol]]++;
+        }
+        lengthCounts[0] = 0;
+        int[] nextCode = new int[MAX_CODE_LENGTH + 1];
+        int code = 0;
+        for (int bits = 1; bits <= MAX_CODE_LENGTH; bits++) {
+            code = (code + lengthCounts[bits - 1]) << 1;
+            nextCode[bits] = code;
+        }
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] > 0) {
+                codes[symbol] = nextCode[lengths[symbol]]++;
+            }
+        }
+    }
+
+    // Code lengths take at most a byte per symbol and codes MAX_CODE_LENGTH
+    // bits per byte.
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        return blockBound(inputLength, BLOCK_SIZE, length -> 4 + 256 + (length * MAX_CODE_LENGTH + 7) / 8 + 1) + 4;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "Huffman Coding Algorithm";
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 3;
+    }
+}
+
+// Bit-packed Golomb-Rice coding of bytes. Each block of GOLOMB_BLOCK_SIZE bytes
+// is first mapped through one of three transforms (none, zigzag delta from the
+// previous byte, or move-to-front), and the transform and Rice parameter k with
+// the smallest coded size are picked from the block's value histogram. A value
+// v is coded as v >>> k in unary and the low k bits; quotients of ESCAPE_LIMIT
+// or more are coded as ESCAPE_LIMIT ones and the raw byte. Blocks that would
+// not shrink are stored raw.
+//
+// A block is its length (32 bits), transform (2 bits), k (3 bits) and the codes;
+// the stream ends with a zero length.
+class GolombCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    static final int GOLOMB_BLOCK_SIZE = 64 * 1024;
+    static final int ESCAPE_LIMIT = 12;
+    static final int MAX_CODE_LENGTH = ESCAPE_LIMIT + 8;
+    static final int TRANSFORM_NONE = 0;
+    static final int TRANSFORM_DELTA = 1;
+    static final int TRANSFORM_MOVE_TO_FRONT = 2;
+    static final int TRANSFORM_RAW = 3;
+    private static final CodecContext.Slot[] MAPPED = {
+            new CodecContext.Slot(), new CodecContext.Slot(), new CodecContext.Slot() };
+    private static final DeltaTransform DELTA = new DeltaTransform();
+
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        BitWriter writer = new BitWriter(output);
+        CodecContext context = CodecContext.current();
+        byte[] block = blockBuffer();
+        byte[][] mapped = new byte[3][];
+        for (int transform = TRANSFORM_NONE; transform <= TRANSFORM_MOVE_TO_FRONT; transform++) {
+            mapped[transform] = context.bytes(MAPPED[transform], GOLOMB_BLOCK_SIZE);
+        }
+        int[] counts = new int[256];
+        int length;
+        while ((length = input.readNBytes(block, 0, GOLOMB_BLOCK_SIZE)) > 0) {
+            System.arraycopy(block, 0, mapped[TRANSFORM_NONE], 0, length);
+            mapDelta(block, length, mapped[TRANSFORM_DELTA]);
+            MoveToFront.encode(block, length, mapped[TRANSFORM_MOVE_TO_FRONT]);
+
+            int bestTransform = TRANSFORM_RAW;
+            int bestParameter = 0;
+            long bestCost = 8L * length;
+            for (int transform = TRANSFORM_NONE; transform <= TRANSFORM_MOVE_TO_FRONT; transform++) {
+                Arrays.fill(counts, 0);
+                ByteHistogram.count(mapped[transform], 0, length, counts);
+                for (int k = 0; k < 8; k++) {
+                    long cost = 0;
+                    for (int value = 0; value < 256; value++) {
+                        cost += (long)counts[value] * codeLength(value, k);
+                    }
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestTransform = transform;
+                        bestParameter = k;
+                    }
+                }
+            }
+
+            writer.writeBits(length, 32);
+            writer.writeBits(bestTransform, 2);
+            writer.writeBits(bestParameter, 3);
+            if (bestTransform == TRANSFORM_RAW) {
+                for (int i = 0; i < length; i++) {
+                    writer.writeBits(block[i], 8);
+                }
+                continue;
+            }
+            byte[] values = mapped[bestTransform];
+            int k = bestParameter;
+            for (int i = 0; i < length; i++) {
+                int value = values[i] & 0xFF;
+                int quotient = value >>> k;
+                if (quotient < ESCAPE_LIMIT) {
+                    // quotient ones, a zero, then the k remainder bits
+                    writer.writeBits((((1 << quotient) - 1) << (k + 1)) | (value & ((1 << k) - 1)), quotient + 1 + k);
+                } else {
+                    writer.writeBits(((1 << ESCAPE_LIMIT) - 1) << 8 | value, ESCAPE_LIMIT + 8);
+                }
+            }
+        }
+        writer.writeBits(0, 32);
+        writer.flush();
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        BitReader reader = new BitReader(input);
+        byte[] block = blockBuffer();
+        int length;
+        while ((length = reader.readBits(32)) != 0) {
+            if (length < 0 || length > GOLOMB_BLOCK_SIZE) {
+                throw new IOException("Corrupt Golomb block length: " + length);
+            }
+            int transform = reader.readBits(2);
+            int k = reader.readBits(3);
+            if (transform == TRANSFORM_RAW) {
+                for (int i = 0; i < length; i++) {
+                    block[i] = (byte)reader.readBits(8);
+                }
+                output.write(block, 0, length);
+                continue;
+            }
+
+            // Two codes of at most MAX_CODE_LENGTH bits fit in each refill.
+            int i = 0;
+            while (i < length) {
+                reader.ensure(2 * MAX_CODE_LENGTH);
+                int end = Math.min(length, i + 2);
+                for (; i < end; i++) {
+                    int bits = reader.peekBits(MAX_CODE_LENGTH);
+                    int quotient = Integer.numberOfLeadingZeros(~(bits << (32 - MAX_CODE_LENGTH)));
+                    if (quotient >= ESCAPE_LIMIT) {
+                        block[i] = (byte)bits;
+                        reader.skipBits(ESCAPE_LIMIT + 8);
+                    } else {
+                        int codeLength = quotient + 1 + k;
+                        int remainder = (bits >>> (MAX_CODE_LENGTH - codeLength)) & ((1 << k) - 1);
+                        block[i] = (byte)((quotient << k) | remainder);
+                        reader.skipBits(codeLength);
+                    }
+                }
+            }
+
+            // Both decoders read each byte before writing it, so they run in place.
+            if (transform == TRANSFORM_DELTA) {
+                for (int j = 0; j < length; j++) {
+                    int zigzag = block[j] & 0xFF;
+                    block[j] = (byte)((zigzag >>> 1) ^ -(zigzag & 1));
+                }
+                DELTA.decode(block, length, block, length);
+            } else if (transform == TRANSFORM_MOVE_TO_FRONT) {
+                MoveToFront.decode(block, length, block);
+            }
+            output.write(block, 0, length);
+        }
+        output.flush();
+    }
+
+    static int codeLength(int value, int k) {
+        int quotient = value >>> k;
+        return quotient < ESCAPE_LIMIT ? quotient + 1 + k : ESCAPE_LIMIT + 8;
+    }
+
+    // Zigzag-coded difference from the previous byte, so small steps up or down
+    // both become small values.
+    private static void mapDelta(byte[] block, int length, byte[] values) {
+        DELTA.encode(block, length, values);
+        for (int i = 0; i < length; i++) {
+            int delta = values[i];
+            values[i] = (byte)((delta << 1) ^ (delta >> 31));
+        }
+    }
+
+    // A block is never coded in more bits than it takes raw, plus its
+    // 37-bit header.
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        return blockBound(inputLength, GOLOMB_BLOCK_SIZE, length -> length + 5) + 5;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "Golomb Code Algorithm";
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 4;
+    }
+}
+
+// Codes start at 9 bits and widen up to 16 as the dictionary grows. When all
+// 65,536 codes are taken a CLEAR code resets the dictionary; END marks the end
+// of the code stream so padding bits are never mistaken for codes.
+class LZWCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    static final int CLEAR_CODE = 256;
+    static final int END_CODE = 257;
+    static final int FIRST_CODE = 258;
+    static final int MIN_CODE_WIDTH = 9;
+    static final int MAX_CODE_WIDTH = 16;
+    static final int MAX_CODES = 1 << MAX_CODE_WIDTH;
+    private static final int HASH_BITS = MAX_CODE_WIDTH + 1;
+    private static final CodecContext.Slot KEYS = new CodecContext.Slot();
+    private static final CodecContext.Slot VALUES = new CodecContext.Slot();
+    private static final CodecContext.Slot PREFIXES = new CodecContext.Slot();
+    private static final CodecContext.Slot SUFFIXES = new CodecContext.Slot();
+    private static final CodecContext.Slot FIRST_BYTES = new CodecContext.Slot();
+    private static final CodecContext.Slot LENGTHS = new CodecContext.Slot();
+
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        BitWriter writer = new BitWriter(output);
+
+        // Open-addressing table from (prefix code << 8 | byte) to code.
+        CodecContext context = CodecContext.current();
+        int[] keys = context.ints(KEYS, 1 << HASH_BITS);
+        int[] values = context.ints(VALUES, 1 << HASH_BITS);
+        Arrays.fill(keys, -1);
+        int nextCode = FIRST_CODE;
+        int codeWidth = MIN_CODE_WIDTH;
+        int prefix = -1;
+
+        byte[] buffer = blockBuffer();
+        int length;
+        while ((length = input.read(buffer, 0, BUFFER_SIZE)) != -1) {
+            for (int i = 0; i < length; i++) {
+                int b = buffer[i] & 0xFF;
+                if (prefix == -1) {
+                    prefix = b;
+                    continue;
+                }
+
+                int key = (prefix << 8) | b;
+                int slot = (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+                while (keys[slot] != -1 && keys[slot] != key) {
+                    slot = (slot + 1) & ((1 << HASH_BITS) - 1);
+                }
+                if (keys[slot] == key) {
+                    prefix = values[slot];
+                    continue;
+                }
+
+                writer.writeBits(prefix, codeWidth);
+                if (nextCode < MAX_CODES) {
+                    keys[slot] = key;
+                    values[slot] = nextCode++;
+                    if (nextCode > (1 << codeWidth) && codeWidth < MAX_CODE_WIDTH) {
+                        codeWidth++;
+                    }
+                } else {
+                    writer.writeBits(CLEAR_CODE, codeWidth);
+                    Arrays.fill(keys, -1);
+                    nextCode = FIRST_CODE;
+                    codeWidth = MIN_CODE_WIDTH;
+                }
+                prefix = b;
+            }
+        }
+
+        if (prefix != -1) {
+            writer.writeBits(prefix, codeWidth);
+            // The decoder adds its entry for the final code before reading END.
+            if (nextCode + 1 > (1 << codeWidth) && codeWidth < MAX_CODE_WIDTH) {
+                codeWidth++;
+            }
+        }
+        writer.writeBits(END_CODE, codeWidth);
+        writer.flush();
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        BitReader reader = new BitReader(input);
+
+        // Each code is its prefix code plus a final byte; strings are rebuilt by
+        // walking the prefix chain backwards into the output buffer.
+        CodecContext context = CodecContext.current();
+        int[] prefixes = context.ints(PREFIXES, MAX_CODES);
+        byte[] suffixes = context.bytes(SUFFIXES, MAX_CODES);
+        byte[] firstBytes = context.bytes(FIRST_BYTES, MAX_CODES);
+        int[] lengths = context.ints(LENGTHS, MAX_CODES);
+        for (int i = 0; i < 256; i++) {
+            suffixes[i] = (byte)i;
+            firstBytes[i] = (byte)i;
+            lengths[i] = 1;
+        }
+
+        byte[] buffer = blockBuffer();
+        int position = 0;
+        int nextCode = FIRST_CODE;
+        int codeWidth = MIN_CODE_WIDTH;
+        int previousCode = -1;
+
+        while (true) {
+            // The decoder runs one dictionary entry behind the encoder.
+            while (nextCode + 1 > (1 << codeWidth) && codeWidth < MAX_CODE_WIDTH) {
+                codeWidth++;
+            }
+            int code = reader.readBits(codeWidth);
+            if (code == END_CODE) {
+                break;
+            }
+            if (code == CLEAR_CODE) {
+                nextCode = FIRST_CODE;
+                codeWidth = MIN_CODE_WIDTH;
+                previousCode = -1;
+                continue;
+            }
+
+            if (previousCode == -1) {
+                if (code > 255) {
+                    throw new IOException("Bad compressed k");
+                }
+            } else if (code > nextCode || (code == nextCode && nextCode == MAX_CODES)) {
+                throw new IOException("Bad compressed k");
+            } else if (nextCode < MAX_CODES) {
+                prefixes[nextCode] = previousCode;
+                suffixes[nextCode] = code == nextCode ? firstBytes[previousCode] : firstBytes[code];
+                firstBytes[nextCode] = firstBytes[previousCode];
+                lengths[nextCode] = lengths[previousCode] + 1;
+                nextCode++;
+            }
+
+            int length = lengths[code];
+            if (position + length > buffer.length) {
+                output.write(buffer, 0, position);
+                position = 0;
+            }
+            int end = position + length;
+            for (int c = code, i = end - 1; i >= position; i--) {
+                buffer[i] = suffixes[c];
+                c = prefixes[c];
+            }
+            position = end;
+            previousCode = code;
+        }
+        output.write(buffer, 0, position);
+        output.flush();
+    }
+
+    // At most one code of up to 16 bits per byte, plus a CLEAR per full
+    // dictionary and END.
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        return 2 * (inputLength + inputLength / (MAX_CODES - FIRST_CODE) + 2) + 1;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "Lempel-Ziv-Welch Algorithm";
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 5;
+    }
+}
+
+// LZSS with a hash-chain match finder, entropy coded with canonical Huffman
+// codes like DEFLATE. Each block of BLOCK_SIZE bytes is parsed on its own into
+// literals and (length, distance) matches within a WINDOW_SIZE window; lengths
+// and distances are coded as a slot symbol plus extra bits. Literals and length
+// slots share one Huffman alphabet, distance slots have another.
+//
+// The match finder keeps the most recent position of each 3-byte hash in head
+// and links earlier positions with the same hash through chain, both plain
+// int arrays. The effort level (1-9) sets how many chain links are followed
+// and whether matching is lazy, i.e. a match is deferred by one byte when the
+// next position has a longer one. The level only affects compression.
+//
+// A block is its original length (32 bits), the literal/length and distance
+// code lengths and the codes, padded to a byte; the stream ends with a zero
+// length.
+class LZSSCompressionAlgorithm extends StreamingCompressionAlgorithm {
+    static final int MIN_MATCH = 3;
+    static final int MAX_MATCH = 258;
+    static final int WINDOW_BITS = 18;
+    static final int WINDOW_SIZE = 1 << WINDOW_BITS;
+    static final int MIN_LEVEL = 1;
+    static final int MAX_LEVEL = 9;
+    static final int DEFAULT_LEVEL = 6;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+    private static final int HASH_BITS = 16;
+    // Three-byte matches further back than this cost more than three literals.
+    private static final int TOO_FAR = 4096;
+    private static final int LENGTH_SLOTS = 28;
+    private static final int DISTANCE_SLOTS = 36;
+    private static final int LITERAL_LENGTH_SYMBOLS = 256 + LENGTH_SLOTS;
+    private static final int MATCH_FLAG = 1 << 31;
+
+    // Per-level tuning, as in zlib: chain links followed, the length at which a
+    // match is taken without looking further, the length above which lazy
+    // matching isn't tried (below LAZY_LEVEL: above which the positions inside
+    // a match aren't hashed) and the length above which lazy searches follow
+    // only a quarter of the chain.
+    private static final int[] CHAIN_DEPTH = { 0, 4, 8, 32, 16, 32, 128, 256, 1024, 4096 };
+    private static final int[] NICE_LENGTH = { 0, 8, 16, 32, 16, 32, 128, 128, 258, 258 };
+    private static final int[] MAX_LAZY = { 0, 4, 5, 6, 4, 16, 16, 32, 128, 258 };
+    private static final int[] GOOD_LENGTH = { 0, 4, 4, 4, 4, 8, 8, 8, 32, 32 };
+    private static final int LAZY_LEVEL = 4;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final CodecContext.Slot HEAD = new CodecContext.Slot();
+    private static final CodecContext.Slot CHAIN = new CodecContext.Slot();
+    private static final CodecContext.Slot TOKENS = new CodecContext.Slot();
+
+    private static final int[] LENGTH_BASE = new int[LENGTH_SLOTS];
+    private static final int[] LENGTH_EXTRA = new int[LENGTH_SLOTS];
+    private static final int[] DISTANCE_BASE = new int[DISTANCE_SLOTS];
+    private static final int[] DISTANCE_EXTRA = new int[DISTANCE_SLOTS];
+
+    // Length slots: (length - MIN_MATCH) below 8 gets its own slot, larger
+    // values four slots per power of two. Distance slots: (distance - 1) below 4
+    // gets its own slot, larger values two slots per power of two.
+    static {
+        for (int slot = 0; slot < LENGTH_SLOTS; slot++) {
+            if (slot < 8) {
+                LENGTH_BASE[slot] = slot;
+            } else {
+                int bits = 3 + ((slot - 8) >> 2);
+                LENGTH_EXTRA[slot] = bits - 2;
+                LENGTH_BASE[slot] = (4 | ((slot - 8) & 3)) << (bits - 2);
+            }
+        }
+        for (int slot = 0; slot < DISTANCE_SLOTS; slot++) {
+            if (slot < 4) {
+                DISTANCE_BASE[slot] = slot;
+            } else {
+                int bits = 2 + ((slot - 4) >> 1);
+                DISTANCE_EXTRA[slot] = bits - 1;
+                DISTANCE_BASE[slot] = (2 | ((slot - 4) & 1)) << (bits - 1);
+            }
+        }
+    }
+
+    private final int level;
+
+    LZSSCompressionAlgorithm() {
+        this(DEFAULT_LEVEL);
+    }
+
+    LZSSCompressionAlgorithm(int level) {
+        if (level < MIN_LEVEL || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("LZSS level must be between " + MIN_LEVEL + " and " + MAX_LEVEL);
+        }
+        this.level = level;
+    }
+
+    static int lengthSlot(int value) {
+        if (value < 8) {
+            return value;
+        }
+        int bits = 31 - Integer.numberOfLeadingZeros(value);
+        return 8 + ((bits - 3) << 2) + ((value >>> (bits - 2)) & 3);
+    }
+
+    static int distanceSlot(int value) {
+        if (value < 4) {
+            return value;
+        }
+        int bits = 31 - Integer.numberOfLeadingZeros(value);
+        return 4 + ((bits - 2) << 1) + ((value >>> (bits - 1)) & 1);
+    }
+
+    @Override
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        BitWriter writer = new BitWriter(output);
+        byte[] block = blockBuffer();
+        CodecContext context = CodecContext.current();
+        int[] head = context.ints(HEAD, 1 << HASH_BITS);
+        int[] chain = context.ints(CHAIN, WINDOW_SIZE);
+        int[] tokens = context.ints(TOKENS, BLOCK_SIZE);
+        int[] literalLengthFrequencies = new int[LITERAL_LENGTH_SYMBOLS];
+        int[] literalLengthLengths = new int[LITERAL_LENGTH_SYMBOLS];
+        int[] literalLengthCodes = new int[LITERAL_LENGTH_SYMBOLS];
+        int[] distanceFrequencies = new int[DISTANCE_SLOTS];
+        int[] distanceLengths = new int[DISTANCE_SLOTS];
+        int[] distanceCodes = new int[DISTANCE_SLOTS];
+        int length;
+        while ((length = input.readNBytes(block, 0, block.length)) > 0) {
+            int tokenCount = parse(block, length, head, chain, tokens);
+
+            Arrays.fill(literalLengthFrequencies, 0);
+            Arrays.fill(distanceFrequencies, 0);
+            for (int i = 0; i < tokenCount; i++) {
+                int token = tokens[i];
+                if (token >= 0) {
+                    literalLengthFrequencies[token]++;
+                } else {
+                    literalLengthFrequencies[256 + lengthSlot((token >>> WINDOW_BITS) & 0xFF)]++;
+                    distanceFrequencies[distanceSlot(token & WINDOW_MASK)]++;
+                }
+            }
+            // The decoder needs a valid code even when a block has no matches.
+            if (Arrays.stream(distanceFrequencies).allMatch(frequency -> frequency == 0)) {
+                distanceFrequencies[0] = 1;
+            }
+            HuffmanCompressionAlgorithm.buildCodeLengths(literalLengthFrequencies, literalLengthLengths);
+            HuffmanCompressionAlgorithm.buildCanonicalCodes(literalLengthLengths, literalLengthCodes);
+            HuffmanCompressionAlgorithm.buildCodeLengths(distanceFrequencies, distanceLengths);
+            HuffmanCompressionAlgorithm.buildCanonicalCodes(distanceLengths, distanceCodes);
+
+            writer.writeBits(length, 32);
+            HuffmanCompressionAlgorithm.writeCodeLengths(writer, literalLengthLengths);
+            HuffmanCompressionAlgorithm.writeCodeLengths(writer, distanceLengths);
+            for (int i = 0; i < tokenCount; i++) {
+                int token = tokens[i];
+                if (token >= 0) {
+                    writer.writeBits(literalLengthCodes[token], literalLengthLengths[token]);
+                    continue;
+                }
+                int lengthValue = (token >>> WINDOW_BITS) & 0xFF;
+                int slot = lengthSlot(lengthValue);
+                writer.writeBits(literalLengthCodes[256 + slot], literalLengthLengths[256 + slot]);
+                writer.writeBits(lengthValue - LENGTH_BASE[slot], LENGTH_EXTRA[slot]);
+                int distanceValue = token & WINDOW_MASK;
+                slot = distanceSlot(distanceValue);
+                writer.writeBits(distanceCodes[slot], distanceLengths[slot]);
+                writer.writeBits(distanceValue - DISTANCE_BASE[slot], DISTANCE_EXTRA[slot]);
+            }
+            writer.alignToByte();
+        }
+        writer.writeBits(0, 32);
+        writer.flush();
+    }
+
+    // Turns data[0, length) into tokens: a literal is the byte value, a match is
+    // MATCH_FLAG | (length - MIN_MATCH) << WINDOW_BITS | (distance - 1).
+    private int parse(byte[] data, int length, int[] head, int[] chain, int[] tokens) {
+        Arrays.fill(head, -1);
+        int maxChain = CHAIN_DEPTH[level];
+        int niceLength = NICE_LENGTH[level];
+        int maxLazy = MAX_LAZY[level];
+        boolean lazy = level >= LAZY_LEVEL;
+        int tokenCount = 0;
+        int inserted = 0;
+        int position = 0;
+        while (position < length) {
+            inserted = insert(data, length, head, chain, inserted, position);
+            long match = findMatch(data, length, chain, position, maxChain, niceLength);
+            int matchLength = (int) (match >>> 32);
+            if (lazy && matchLength >= MIN_MATCH) {
+                while (matchLength < maxLazy && position + 1 < length) {
+                    inserted = insert(data, length, head, chain, inserted, position + 1);
+                    int chainDepth = matchLength >= GOOD_LENGTH[level] ? maxChain >> 2 : maxChain;
+                    long next = findMatch(data, length, chain, position + 1, chainDepth, niceLength);
+                    if ((int) (next >>> 32) <= matchLength) {
+                        break;
+                    }
+                    tokens[tokenCount++] = data[position++] & 0xFF;
+                    match = next;
+                    matchLength = (int) (next >>> 32);
+                }
+            }
+            if (matchLength >= MIN_MATCH) {
+                int distance = (int) match;
+                tokens[tokenCount++] = MATCH_FLAG | (matchLength - MIN_MATCH) << WINDOW_BITS | (distance - 1);
+                position += matchLength;
+                if (!lazy && matchLength > maxLazy) {
+                    inserted = position;
+                }
+            } else {
+                tokens[tokenCount++] = data[position++] & 0xFF;
+            }
+        }
+        return tokenCount;
+    }
+
+    // Adds positions [from, to] to the hash chains and returns the next
+    // position still to be added.
+    private static int insert(byte[] data, int length, int[] head, int[] chain, int from, int to) {
+        int end = Math.min(to, length - MIN_MATCH);
+        for (int position = from; position <= end; position++) {
+            int hash = hash(data, position);
+            chain[position & WINDOW_MASK] = head[hash];
+            head[hash] = position;
+        }
+        return Math.max(from, to + 1);
+    }
+
+    private static int hash(byte[] data, int position) {
+        int value = (data[position] & 0xFF) << 16 | (data[position + 1] & 0xFF) << 8 | (data[position + 2] & 0xFF);
+        return (value * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    // Walks the chain of earlier positions sharing position's hash; returns the
+    // longest match as (length << 32 | distance), length 0 if there is none.
+    private static long findMatch(byte[] data, int length, int[] chain, int position, int maxChain, int niceLength) {
+        int maxLength = Math.min(MAX_MATCH, length - position);
+        if (maxLength < MIN_MATCH) {
+            return 0;
+        }
+        int bestLength = MIN_MATCH - 1;
+        int bestDistance = 0;
+        int candidate = chain[position & WINDOW_MASK];
+        int limit = Math.max(0, position - WINDOW_SIZE + 1);
+        for (int links = maxChain; candidate >= limit && links > 0; links--) {
+            if (data[candidate + bestLength] == data[position + bestLength] && data[candidate] == data[position]) {
+                int matchLength = matchLength(data, candidate, position, maxLength);
+                int distance = position - candidate;
+                if (matchLength > bestLength && (matchLength > MIN_MATCH || distance <= TOO_FAR)) {
+                    bestLength = matchLength;
+                    bestDistance = distance;
+                    if (matchLength >= niceLength || matchLength == maxLength) {
+                        break;
+                    }
+                }
+            }
+            int next = chain[candidate & WINDOW_MASK];
+            if (next >= candidate) {
+                break;
+            }
+            candidate = next;
+        }
+        return bestDistance == 0 ? 0 : (long) bestLength << 32 | bestDistance;
+    }
+
+    // Compares eight bytes at a time while both sides have them.
+    private static int matchLength(byte[] data, int candidate, int position, int maxLength) {
+        int matchLength = 0;
+        while (matchLength + 8 <= maxLength) {
+            long difference = (long) LONGS.get(data, candidate + matchLength)
+                    ^ (long) LONGS.get(data, position + matchLength);
+            if (difference != 0) {
+                return matchLength + (Long.numberOfTrailingZeros(difference) >>> 3);
+            }
+            matchLength += 8;
+        }
+        while (matchLength < maxLength && data[candidate + matchLength] == data[position + matchLength]) {
+            matchLength++;
+        }
+        return matchLength;
+    }
+
+    @Override
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        BitReader reader = new BitReader(input);
+        byte[] block = blockBuffer();
+        int[] literalLengthLengths = new int[LITERAL_LENGTH_SYMBOLS];
+        int[] literalLengthCodes = new int[LITERAL_LENGTH_SYMBOLS];
+        int[] literalLengthTable = new int[HuffmanCompressionAlgorithm.decodeTableSize(LITERAL_LENGTH_SYMBOLS)];
+        int[] distanceLengths = new int[DISTANCE_SLOTS];
+        int[] distanceCodes = new int[DISTANCE_SLOTS];
+        int[] distanceTable = new int[HuffmanCompressionAlgorithm.decodeTableSize(DISTANCE_SLOTS)];
+        int length;
+        while ((length = reader.readBits(32)) != 0) {
+            if (length < 0 || length > BLOCK_SIZE) {
+                throw new IOException("Corrupt LZSS block length: " + length);
+            }
+            HuffmanCompressionAlgorithm.readCodeLengths(reader, literalLengthLengths);
+            HuffmanCompressionAlgorithm.readCodeLengths(reader, distanceLengths);
+            HuffmanCompressionAlgorithm.buildCanonicalCodes(literalLengthLengths, literalLengthCodes);
+            HuffmanCompressionAlgorithm.buildDecodeTable(literalLengthLengths, literalLengthCodes, literalLengthTable);
+            HuffmanCompressionAlgorithm.buildCanonicalCodes(distanceLengths, distanceCodes);
+            HuffmanCompressionAlgorithm.buildDecodeTable(distanceLengths, distanceCodes, distanceTable);
+
+            int position = 0;
+            while (position < length) {
+                // Enough for a literal/length code, its extra bits and a distance
+                // code; distance extra bits are read separately.
+                reader.ensure(2 * HuffmanCompressionAlgorithm.MAX_CODE_LENGTH + 5);
+                int symbol = HuffmanCompressionAlgorithm.decodeSymbol(reader, literalLengthTable);
+                if (symbol < 256) {
+                    block[position++] = (byte) symbol;
+                    continue;
+                }
+                int slot = symbol - 256;
+                int matchLength = MIN_MATCH + LENGTH_BASE[slot] + reader.readBits(LENGTH_EXTRA[slot]);
+                slot = HuffmanCompressionAlgorithm.decodeSymbol(reader, distanceTable);
+                int distance = 1 + DISTANCE_BASE[slot] + reader.readBits(DISTANCE_EXTRA[slot]);
+                if (distance > position || matchLength > length - position) {
+                    throw new IOException("Corrupt LZSS match");
+                }
+                // Byte by byte, since a match may overlap the bytes it produces.
+                for (int from = position - distance, end = position + matchLength; position < end; ) {
+                    block[position++] = block[from++];
+                }
+            }
+            reader.alignToByte();
+            output.write(block, 0, length);
+        }
+        output.flush();
+    }
+
+    // A literal costs up to MAX_CODE_LENGTH bits; a match of MIN_MATCH bytes
+    // up to two codes and the widest extra bits, which is slightly more per
+    // byte. Code lengths take at most a byte per symbol.
+    @Override
+    public long maxCompressedLength(long inputLength) {
+        int matchBits = 2 * HuffmanCompressionAlgorithm.MAX_CODE_LENGTH + LENGTH_EXTRA[LENGTH_SLOTS - 1]
+                + DISTANCE_EXTRA[DISTANCE_SLOTS - 1];
+        int bitsPerByte = Math.max(HuffmanCompressionAlgorithm.MAX_CODE_LENGTH, (matchBits + MIN_MATCH - 1) / MIN_MATCH);
+        return blockBound(inputLength, BLOCK_SIZE, length -> 4 + LITERAL_LENGTH_SYMBOLS + DISTANCE_SLOTS
+                + (length * bitsPerByte + 7) / 8 + 1) + 4;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "LZSS Algorithm";
+    }
+
+    @Override
+    public int getAlgorithmId() {
+        return 6;
+    }
+}
+
+
+public class FileCompressor {
+    static final int MAGIC = 0x455A4346;
+    static final int VERSION = 1;
+    static final int FLAG_BLOCKS = 1;
+    // Algorithm name that lets AlgorithmSelector choose per file.
+    public static final String AUTO = "Auto";
+    // Largest worst-case output compressed into a direct buffer and written
+    // with one channel write; anything bigger is streamed.
+    static final int DIRECT_OUTPUT_LIMIT = 16 << 20;
+
+    private int blockSize;
+    private int contextOrder;
+    private int level = LZSSCompressionAlgorithm.DEFAULT_LEVEL;
+    // Instances for non-default settings, made once per setting rather than
+    // per file. Algorithms hold no per-call state, so workers share them.
+    private volatile ArithmeticCompressionAlgorithm configuredArithmetic;
+    private volatile LZSSCompressionAlgorithm configuredLzss;
+
+    // A positive block size compresses files as independent blocks in parallel
+    // (see BlockCompressor); zero runs the algorithm over the whole stream.
+    public void setBlockSize(int blockSize) {
+        if (blockSize != 0 && (blockSize < BlockCompressor.MIN_BLOCK_SIZE || blockSize > BlockCompressor.MAX_BLOCK_SIZE)) {
+            throw new IllegalArgumentException("Block size must be 0 or between " + BlockCompressor.MIN_BLOCK_SIZE
+                    + " and " + BlockCompressor.MAX_BLOCK_SIZE + " bytes");
+        }
+        this.blockSize = blockSize;
+    }
+
+    // Context order used by the arithmetic coder: 0 is a static per-block model,
+    // 1 and 2 adapt to the previous one or two bytes at more CPU per byte.
+    public void setContextOrder(int contextOrder) {
+        if (contextOrder < 0 || contextOrder > ArithmeticCompressionAlgorithm.MAX_ORDER) {
+            throw new IllegalArgumentException("Context order must be between 0 and "
+                    + ArithmeticCompressionAlgorithm.MAX_ORDER);
+        }
+        this.contextOrder = contextOrder;
+        this.configuredArithmetic = null;
+    }
+
+    // LZSS effort level: 1 is fastest, 9 searches hardest for long matches.
+    public void setLevel(int level) {
+        if (level < LZSSCompressionAlgorithm.MIN_LEVEL || level > LZSSCompressionAlgorithm.MAX_LEVEL) {
+            throw new IllegalArgumentException("Level must be between " + LZSSCompressionAlgorithm.MIN_LEVEL
+                    + " and " + LZSSCompressionAlgorithm.MAX_LEVEL);
+        }
+        this.level = level;
+        this.configuredLzss = null;
+    }
+
+    // Single-file output starts with a header (magic, version, algorithm id,
+    // flags, original length, original name) so FileDecompressor can restore it
+    // without being told how it was made.
+    //
+    // When the algorithm bounds its output and the bound is small enough, the
+    // file is compressed from memory straight into a pooled direct buffer of
+    // that size, which goes out in one channel write; otherwise it is streamed.
+    public void compress(String algorithmName, File file, String compressedPath) throws IOException {
+        CompressionAlgorithm algorithm = createAlgorithm(algorithmName, file);
+        long originalLength = Files.size(file.toPath());
+        long bound = maxCompressedLength(algorithm, originalLength);
+        // Magic, version, id, flags, length and the name as modified UTF-8.
+        long headerBound = 4 + 3 + 8 + 2 + 3L * file.getName().length();
+
+        try (FileChannel channel = FileChannel.open(new File(compressedPath).toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (bound >= 0 && headerBound + bound <= DIRECT_OUTPUT_LIMIT) {
+                compressDirect(algorithm, file, originalLength, (int) (headerBound + bound), channel);
+                return;
+            }
+            try (CountingInputStream input = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                writeHeader(output, algorithm, originalLength, file.getName());
+                compress(algorithm, input, output);
+                checkLength(file, input.count, originalLength);
+                output.flush();
+            }
+        }
+    }
+
+    private void compressDirect(CompressionAlgorithm algorithm, File file, long originalLength, int capacity,
+                                FileChannel channel) throws IOException {
+        BufferPool pool = BufferPool.getDefault();
+        // One spare byte so a file that grew since it was sized is noticed.
+        ByteBuffer data = pool.allocate((int) originalLength + 1);
+        ByteBuffer output = pool.allocateDirect(capacity);
+        try {
+            try (FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                while (data.hasRemaining()) {
+                    if (input.read(data) < 0) {
+                        break;
+                    }
+                }
+            }
+            data.flip();
+            checkLength(file, data.remaining(), originalLength);
+            writeHeader(new DataOutputStream(new ByteBufferOutputStream(output)), algorithm, originalLength,
+                    file.getName());
+            if (blockSize > 0) {
+                compress(algorithm, new ArchiveReader.ByteBufferInputStream(data), new ByteBufferOutputStream(output));
+            } else {
+                algorithm.compress(data, output);
+            }
+            output.flip();
+            while (output.hasRemaining()) {
+                channel.write(output);
+            }
+        } finally {
+            pool.release(data);
+            pool.release(output);
+        }
+    }
+
+    private void writeHeader(DataOutputStream output, CompressionAlgorithm algorithm, long originalLength,
+                             String name) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(algorithm.getAlgorithmId());
+        output.writeByte(blockSize > 0 ? FLAG_BLOCKS : 0);
+        output.writeLong(originalLength);
+        output.writeUTF(name);
+    }
+
+    private static void checkLength(File file, long length, long originalLength) throws IOException {
+        if (length != originalLength) {
+            throw new IOException(file.getName() + " changed while it was being compressed");
+        }
+    }
+
+    // Writes all files into a single archive with a central directory, each
+    // under its own name.
+    public void compress(String algorithmName, List<File> files, String archivePath) throws IOException {
+        EntryNames.checkUnique(EntryNames.of(files));
+        try (ArchiveWriter archive = new ArchiveWriter(Files.newOutputStream(new File(archivePath).toPath()))) {
+            for (File file : files) {
+                compress(algorithmName, file, archive);
+            }
+        }
+    }
+
+    ArchiveEntry compress(String algorithmName, File file, ArchiveWriter archive) throws IOException {
+        return compress(algorithmName, file, file.getName(), archive);
+    }
+
+    ArchiveEntry compress(String algorithmName, File file, String name, ArchiveWriter archive) throws IOException {
+        CompressionAlgorithm algorithm = createAlgorithm(algorithmName, file);
+
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            return archive.addEntry(name, algorithm.getAlgorithmId(), blockSize > 0,
+                    input, (entryInput, entryOutput) -> compress(algorithm, entryInput, entryOutput));
+        }
+    }
+
+    // Compresses a file that has already been read into memory, the remaining
+    // bytes of a heap buffer, so workers (see CompressionPipeline) can encode
+    // entries without touching the archive. The encoded data is in a buffer from
+    // the default BufferPool, for the caller to release once it is written.
+    ArchiveWriter.EncodedEntry encode(String algorithmName, ByteBuffer data) throws IOException {
+        byte[] array = data.array();
+        int offset = data.arrayOffset() + data.position();
+        int length = data.remaining();
+        CompressionAlgorithm algorithm = AUTO.equals(algorithmName)
+                ? AlgorithmSelector.select(offset == 0 ? array : Arrays.copyOfRange(array, offset, offset + length),
+                        length, autoCandidates())
+                : createAlgorithm(algorithmName, null);
+        CRC32 crc = new CRC32();
+        crc.update(array, offset, length);
+        PooledOutputStream output = new PooledOutputStream(BufferPool.getDefault(), length / 2 + 64);
+        compress(algorithm, new ByteArrayInputStream(array, offset, length), output);
+        return new ArchiveWriter.EncodedEntry(algorithm.getAlgorithmId(), blockSize > 0, length,
+                (int) crc.getValue(), output.toBuffer());
+    }
+
+    // Worst-case size of what compress(algorithm, ...) writes for inputLength
+    // bytes, or -1 if the algorithm can't bound it.
+    long maxCompressedLength(CompressionAlgorithm algorithm, long inputLength) {
+        if (blockSize > 0) {
+            return new BlockCompressor(algorithm, blockSize, ForkJoinPool.commonPool()).maxCompressedLength(inputLength);
+        }
+        return algorithm.maxCompressedLength(inputLength);
+    }
+
+    private void compress(CompressionAlgorithm algorithm, InputStream input, OutputStream output) throws IOException {
+        if (blockSize > 0) {
+            new BlockCompressor(algorithm, blockSize, ForkJoinPool.commonPool()).compress(input, output);
+        } else {
+            algorithm.compress(input, output);
+        }
+    }
+
+    private CompressionAlgorithm createAlgorithm(String algorithmName, File file) throws IOException {
+        if (AUTO.equals(algorithmName)) {
+            return AlgorithmSelector.select(file.toPath(), autoCandidates());
+        }
+        // Pipeline specs such as "delta+rle+huffman" are built on demand; any
+        // chain decompresses through the registered pipeline.
+        if (algorithmName.indexOf('+') >= 0 && !AlgorithmRegistry.getDefault().contains(algorithmName)) {
+            return CodecPipeline.parse(algorithmName);
+        }
+        return configure(AlgorithmRegistry.getDefault().get(algorithmName));
+    }
+
+    private List<CompressionAlgorithm> autoCandidates() {
+        List<CompressionAlgorithm> candidates = new ArrayList<>();
+        for (CompressionAlgorithm algorithm : AlgorithmRegistry.getDefault().getAlgorithms()) {
+            // The default pipeline repeats what BWT does, so trying it too
+            // would only slow the selection down.
+            if (!(algorithm instanceof StoredCompressionAlgorithm) && !(algorithm instanceof CodecPipeline)) {
+                candidates.add(configure(algorithm));
+            }
+        }
+        return candidates;
+    }
+
+    private CompressionAlgorithm configure(CompressionAlgorithm algorithm) {
+        if (algorithm instanceof ArithmeticCompressionAlgorithm && contextOrder != 0) {
+            ArithmeticCompressionAlgorithm configured = configuredArithmetic;
+            if (configured == null) {
+                configured = new ArithmeticCompressionAlgorithm(contextOrder);
+                configuredArithmetic = configured;
+            }
+            return configured;
+        }
+        if (algorithm instanceof LZSSCompressionAlgorithm && level != LZSSCompressionAlgorithm.DEFAULT_LEVEL) {
+            LZSSCompressionAlgorithm configured = configuredLzss;
+            if (configured == null) {
+                configured = new LZSSCompressionAlgorithm(level);
+                configuredLzss = configured;
+            }
+            return configured;
+        }
+        return algorithm;
+    }
+}
@@ -0,0 +1,105 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Restores files written by FileCompressor. The header says which algorithm
+// produced the data and how long the original was, so nothing has to be chosen
+// by the caller.
+public class FileDecompressor {
+    private static final int MAX_BUFFER_SIZE = 1 << 20;
+
+    // Restores a single-file .bin to decompressedPath.
+    public void decompress(File compressedFile, String decompressedPath) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(compressedFile.toPath())))) {
+            Header header = readHeader(input);
+            decompress(header, input, new File(decompressedPath).toPath());
+        }
+    }
+
+    // Restores every file held in a .bin, whether it is a single compressed file
+    // or a multi-file archive, into outputDirectory. Archive entries keep their
+    // relative paths; a file that already exists is never overwritten.
+    public List<File> decompressAll(File compressedFile, File outputDirectory) throws IOException {
+        List<File> restored = new ArrayList<>();
+        int magic;
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(compressedFile.toPath()))) {
+            magic = input.readInt();
+        }
+
+        if (magic == ArchiveWriter.MAGIC) {
+            try (ArchiveReader reader = new ArchiveReader(compressedFile.toPath())) {
+                for (ArchiveEntry entry : reader.getEntries()) {
+                    Path target = EntryNames.resolve(outputDirectory.toPath(), entry.getName());
+                    reader.extract(entry, target);
+                    restored.add(target.toFile());
+                }
+            }
+            return restored;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(compressedFile.toPath())))) {
+            Header header = readHeader(input);
+            File target = new File(outputDirectory, new File(header.name).getName());
+            if (target.exists()) {
+                throw new IOException(target + " already exists");
+            }
+            decompress(header, input, target.toPath());
+            restored.add(target);
+        }
+        return restored;
+    }
+
+    private Header readHeader(DataInputStream input) throws IOException {
+        if (input.readInt() != FileCompressor.MAGIC) {
+            throw new IOException("Not a compressed file: bad magic number");
+        }
+        int version = input.readUnsignedByte();
+        if (version != FileCompressor.VERSION) {
+            throw new IOException("Unsupported format version: " + version);
+        }
+        Header header = new Header();
+        header.algorithmId = input.readUnsignedByte();
+        header.flags = input.readUnsignedByte();
+        header.originalLength = input.readLong();
+        header.name = input.readUTF();
+        if (header.originalLength < 0) {
+            throw new IOException("Corrupt header: negative original length");
+        }
+        return header;
+    }
+
+    // The output file is reserved at its final size up front and written through
+    // a buffer no larger than the original, so small files take one write.
+    private void decompress(Header header, InputStream input, Path target) throws IOException {
+        CompressionAlgorithm algorithm = AlgorithmRegistry.getDefault().getStored(header.algorithmId);
+        int bufferSize = (int)Math.max(8192, Math.min(header.originalLength, MAX_BUFFER_SIZE));
+
+        try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+            file.setLength(header.originalLength);
+            try (CountingOutputStream output = new CountingOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file.getFD()), bufferSize))) {
+                if ((header.flags & FileCompressor.FLAG_BLOCKS) != 0) {
+                    new BlockCompressor(algorithm).decompress(input, output);
+                } else {
+                    algorithm.decompress(input, output);
+                }
+                output.flush();
+                if (output.count != header.originalLength) {
+                    throw new IOException("Corrupt data: expected " + header.originalLength
+                            + " bytes but got " + output.count);
+                }
+            }
+        }
+    }
+
+    private static class Header {
+        int algorithmId;
+        int flags;
+        long originalLength;
+        String name;
+    }
+}
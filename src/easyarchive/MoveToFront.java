@@ -0,0 +1,128 @@
+package easyarchive;
+
+import java.io.IOException;
+
+// Move-to-front coding and the zero-run coding used on its output after a
+// Burrows-Wheeler transform, where long runs of zeros dominate.
+//
+// Zero runs are written as their length in bijective base 2 with the digits
+// RUN_A (0) and RUN_B (1), as in bzip2. Other values v move up by one to make
+// room; ESCAPE is followed by v - ESCAPE + 1 for the two values that would
+// not fit in a byte.
+class MoveToFront {
+    static final int RUN_A = 0;
+    static final int RUN_B = 1;
+    static final int ESCAPE = 255;
+
+    private MoveToFront() {
+    }
+
+    static void encode(byte[] data, int length, byte[] output) {
+        byte[] order = identity();
+        for (int i = 0; i < length; i++) {
+            byte value = data[i];
+            int index = 0;
+            while (order[index] != value) {
+                index++;
+            }
+            System.arraycopy(order, 0, order, 1, index);
+            order[0] = value;
+            output[i] = (byte) index;
+        }
+    }
+
+    static void decode(byte[] data, int length, byte[] output) {
+        byte[] order = identity();
+        for (int i = 0; i < length; i++) {
+            int index = data[i] & 0xFF;
+            byte value = order[index];
+            System.arraycopy(order, 0, order, 1, index);
+            order[0] = value;
+            output[i] = value;
+        }
+    }
+
+    private static byte[] identity() {
+        byte[] order = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            order[i] = (byte) i;
+        }
+        return order;
+    }
+
+    // Worst case for encodeZeroRuns: every value escaped.
+    static int maxZeroRunLength(int length) {
+        return 2 * length;
+    }
+
+    // Returns the number of bytes written to output.
+    static int encodeZeroRuns(byte[] data, int length, byte[] output) {
+        int out = 0;
+        int i = 0;
+        while (i < length) {
+            int value = data[i] & 0xFF;
+            if (value == 0) {
+                int run = 0;
+                while (i < length && data[i] == 0) {
+                    run++;
+                    i++;
+                }
+                for (; run > 0; run = (run - 1) >> 1) {
+                    output[out++] = (byte) ((run & 1) == 1 ? RUN_A : RUN_B);
+                    if ((run & 1) == 0) {
+                        run--;
+                    }
+                }
+                continue;
+            }
+            if (value + 1 >= ESCAPE) {
+                output[out++] = (byte) ESCAPE;
+                output[out++] = (byte) (value + 1 - ESCAPE);
+            } else {
+                output[out++] = (byte) (value + 1);
+            }
+            i++;
+        }
+        return out;
+    }
+
+    // Decodes exactly expectedLength bytes into output.
+    static void decodeZeroRuns(byte[] data, int length, byte[] output, int expectedLength) throws IOException {
+        int out = 0;
+        int i = 0;
+        while (i < length) {
+            int symbol = data[i++] & 0xFF;
+            if (symbol <= RUN_B) {
+                long run = 0;
+                for (int weight = 1; ; weight <<= 1) {
+                    run += (long) (symbol + 1) * weight;
+                    if (i == length || (data[i] & 0xFF) > RUN_B || weight > expectedLength) {
+                        break;
+                    }
+                    symbol = data[i++] & 0xFF;
+                }
+                if (run > expectedLength - out) {
+                    throw new IOException("Corrupt zero run");
+                }
+                for (long end = out + run; out < end; ) {
+                    output[out++] = 0;
+                }
+                continue;
+            }
+            if (out == expectedLength) {
+                throw new IOException("Corrupt zero-run data: too long");
+            }
+            if (symbol == ESCAPE) {
+                if (i == length) {
+                    throw new IOException("Corrupt zero-run data: truncated escape");
+                }
+                output[out++] = (byte) (ESCAPE - 1 + (data[i++] & 0xFF));
+            } else {
+                output[out++] = (byte) (symbol - 1);
+            }
+        }
+        if (out != expectedLength) {
+            throw new IOException("Corrupt zero-run data: expected " + expectedLength + " bytes but got " + out);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package easyarchive;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Tasks run on an executor whose results are taken in submission order, with
+// at most maxInFlight of them pending, for the block coders that compress or
+// decompress blocks in parallel but write them in order:
+//
+//     tasks.submit(task);
+//     while (tasks.ready(last)) {
+//         write(tasks.next());
+//     }
+class OrderedTasks<T> {
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final String name;
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+    // name describes a task in error messages, e.g. "Block coding".
+    OrderedTasks(ExecutorService executor, int maxInFlight, String name) {
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.name = name;
+    }
+
+    void submit(Callable<T> task) {
+        pending.add(executor.submit(task));
+    }
+
+    // Whether the oldest result should be taken now: when the limit is
+    // reached, or when finishing and anything is left.
+    boolean ready(boolean finishing) {
+        return !pending.isEmpty() && (finishing || pending.size() >= maxInFlight);
+    }
+
+    T next() throws IOException {
+        return await(pending.poll(), name);
+    }
+
+    // Waits for a result, rethrowing the task's IOException (also when it was
+    // wrapped in an UncheckedIOException) as is.
+    static <T> T await(Future<T> future, String name) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name + " was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(name + " failed", e.getCause());
+        }
+    }
+}
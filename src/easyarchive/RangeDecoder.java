@@ -0,0 +1,69 @@
+package easyarchive;
+
+import java.io.IOException;
+
+// Decodes RangeEncoder output held in an array. Reading past the end yields
+// zero bytes, which is what the encoder's final flush implies.
+class RangeDecoder {
+    private final byte[] data;
+    private int position;
+    private final int end;
+    private int range = 0xFFFFFFFF;
+    private int code;
+    private int r;
+
+    RangeDecoder(byte[] data, int offset, int length) throws IOException {
+        this.data = data;
+        this.position = offset;
+        this.end = offset + length;
+        if (nextByte() != 0) {
+            throw new IOException("Corrupt range coder data");
+        }
+        for (int i = 0; i < 4; i++) {
+            code = (code << 8) | nextByte();
+        }
+    }
+
+    // Returns the cumulative frequency the next symbol's interval contains; the
+    // caller maps it to a symbol and then calls update with that interval.
+    int decodeFrequency(int totalBits) {
+        r = range >>> totalBits;
+        int value = Integer.divideUnsigned(code, r);
+        return Math.min(value, (1 << totalBits) - 1);
+    }
+
+    void update(int cumulativeFrequency, int frequency) {
+        code -= r * cumulativeFrequency;
+        range = r * frequency;
+        while (Integer.compareUnsigned(range, RangeEncoder.TOP) < 0) {
+            range <<= 8;
+            code = (code << 8) | nextByte();
+        }
+    }
+
+    int decodeBit(short[] probabilities, int index) {
+        int probability = probabilities[index];
+        int bound = (range >>> RangeEncoder.PROBABILITY_BITS) * probability;
+        int bit;
+        if (Integer.compareUnsigned(code, bound) < 0) {
+            range = bound;
+            probabilities[index] = (short)(probability
+                    + ((RangeEncoder.PROBABILITY_ONE - probability) >>> RangeEncoder.ADAPT_SHIFT));
+            bit = 0;
+        } else {
+            code -= bound;
+            range -= bound;
+            probabilities[index] = (short)(probability - (probability >>> RangeEncoder.ADAPT_SHIFT));
+            bit = 1;
+        }
+        while (Integer.compareUnsigned(range, RangeEncoder.TOP) < 0) {
+            range <<= 8;
+            code = (code << 8) | nextByte();
+        }
+        return bit;
+    }
+
+    private int nextByte() {
+        return position < end ? data[position++] & 0xFF : 0;
+    }
+}
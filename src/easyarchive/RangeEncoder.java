@@ -0,0 +1,89 @@
+package easyarchive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Integer range coder in the LZMA style: a 64-bit low end absorbs carries,
+// which are propagated through a cached byte and a count of pending 0xFF
+// bytes, and the 32-bit range is renormalized a byte at a time whenever it
+// drops below 2^24.
+class RangeEncoder {
+    static final int TOP = 1 << 24;
+    static final int PROBABILITY_BITS = 11;
+    static final int PROBABILITY_ONE = 1 << PROBABILITY_BITS;
+    static final int ADAPT_SHIFT = 4;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private long low;
+    private int range = 0xFFFFFFFF;
+    private int cache;
+    private long cacheSize = 1;
+
+    RangeEncoder(OutputStream output) {
+        this.output = output;
+    }
+
+    // Encodes the interval [cumulativeFrequency, cumulativeFrequency + frequency)
+    // out of a total of 2^totalBits.
+    void encode(int cumulativeFrequency, int frequency, int totalBits) throws IOException {
+        int r = range >>> totalBits;
+        low += (long)r * cumulativeFrequency;
+        range = r * frequency;
+        while (Integer.compareUnsigned(range, TOP) < 0) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    // Encodes one bit with an adaptive probability of zero, PROBABILITY_BITS
+    // wide, stored at probabilities[index] and updated in place.
+    void encodeBit(short[] probabilities, int index, int bit) throws IOException {
+        int probability = probabilities[index];
+        int bound = (range >>> PROBABILITY_BITS) * probability;
+        if (bit == 0) {
+            range = bound;
+            probabilities[index] = (short)(probability + ((PROBABILITY_ONE - probability) >>> ADAPT_SHIFT));
+        } else {
+            low += bound & 0xFFFFFFFFL;
+            range -= bound;
+            probabilities[index] = (short)(probability - (probability >>> ADAPT_SHIFT));
+        }
+        while (Integer.compareUnsigned(range, TOP) < 0) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    void finish() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            shiftLow();
+        }
+        output.write(buffer, 0, position);
+        position = 0;
+        output.flush();
+    }
+
+    private void shiftLow() throws IOException {
+        if (low < 0xFF000000L || low > 0xFFFFFFFFL) {
+            int carry = (int)(low >>> 32);
+            int pending = cache;
+            do {
+                writeByte(pending + carry);
+                pending = 0xFF;
+            } while (--cacheSize != 0);
+            cache = (int)(low >>> 24) & 0xFF;
+        }
+        cacheSize++;
+        low = (low & 0x00FFFFFFL) << 8;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = (byte)b;
+    }
+}
@@ -0,0 +1,107 @@
+package easyarchive;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+// Base for algorithms that work directly on streams; the array methods are
+// just the streaming ones run over in-memory streams.
+public abstract class StreamingCompressionAlgorithm implements CompressionAlgorithm {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    // The BLOCK_SIZE buffer a codec reads into, kept in the thread's
+    // CodecContext. All codecs share it, so a codec holding it must not run
+    // another codec on the same thread.
+    private static final CodecContext.Slot BLOCK = new CodecContext.Slot();
+
+    static byte[] blockBuffer() {
+        return CodecContext.current().bytes(BLOCK, BLOCK_SIZE);
+    }
+
+    // Sums a per-block bound over input cut into blocks of blockSize bytes,
+    // the last one possibly shorter.
+    static long blockBound(long inputLength, int blockSize, LongUnaryOperator bound) {
+        long rest = inputLength % blockSize;
+        return inputLength / blockSize * bound.applyAsLong(blockSize) + (rest > 0 ? bound.applyAsLong(rest) : 0);
+    }
+
+    // Compresses data[0, length) into a buffer from the default BufferPool,
+    // leaving headroom bytes at the start for the caller's own header; the
+    // caller releases it. When maxCompressedLength is close to the input the
+    // buffer is sized by it, so the codec writes its output in place. Most
+    // bounds are far above that (twice the input for LZW, eight times for
+    // order-2 arithmetic), and every block in flight would hold one for output
+    // that is usually smaller than the input, so those codecs write into a
+    // pooled stream that grows as needed instead. The data is in the array
+    // format, which for algorithms that aren't streaming ones differs from
+    // their stream format, so those go through compress(byte[]).
+    static ByteBuffer compressToPool(CompressionAlgorithm algorithm, byte[] data, int length, int headroom)
+            throws IOException {
+        BufferPool pool = BufferPool.getDefault();
+        if (!(algorithm instanceof StreamingCompressionAlgorithm)) {
+            byte[] compressed = algorithm.compress(length == data.length ? data : Arrays.copyOf(data, length));
+            ByteBuffer output = pool.allocate(headroom + compressed.length);
+            return output.position(headroom).put(compressed).flip();
+        }
+        long bound = algorithm.maxCompressedLength(length);
+        if (bound < 0 || bound > length + (length >> 3) + BufferPool.MIN_CAPACITY
+                || headroom + bound > BufferPool.MAX_CAPACITY) {
+            PooledOutputStream output = new PooledOutputStream(pool, headroom + length / 2 + 64);
+            output.write(new byte[headroom]);
+            algorithm.compress(new ByteArrayInputStream(data, 0, length), output);
+            return output.toBuffer();
+        }
+        ByteBuffer output = pool.allocate((int) (headroom + bound));
+        output.position(headroom);
+        try {
+            algorithm.compress(ByteBuffer.wrap(data, 0, length), output);
+        } catch (IOException | RuntimeException e) {
+            pool.release(output);
+            throw e;
+        }
+        return output.flip();
+    }
+
+    // Reads a compressed length and that many bytes. A length that is negative
+    // or above maxLength (when that is known, i.e. not negative) is corrupt
+    // rather than something to allocate; with no bound the bytes are read in
+    // chunks, so a bogus length in a short stream fails at its end.
+    static byte[] readCompressedBlock(DataInputStream input, long maxLength) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || (maxLength >= 0 && length > maxLength)) {
+            throw new IOException("Corrupt compressed block length: " + length);
+        }
+        if (maxLength < 0) {
+            byte[] block = input.readNBytes(length);
+            if (block.length != length) {
+                throw new EOFException("Compressed block is truncated");
+            }
+            return block;
+        }
+        byte[] block = new byte[length];
+        input.readFully(block);
+        return block;
+    }
+
+    @Override
+    public byte[] compress(byte[] input) throws IOException {
+        ByteBuffer output = compressToPool(this, input, input.length, 0);
+        byte[] compressed = Arrays.copyOf(output.array(), output.limit());
+        BufferPool.getDefault().release(output);
+        return compressed;
+    }
+
+    @Override
+    public byte[] decompress(byte[] compressed) throws IOException {
+        ByteArrayOutputStream decompressedData = new ByteArrayOutputStream();
+        decompress(new ByteArrayInputStream(compressed), decompressedData);
+        return decompressedData.toByteArray();
+    }
+
+    @Override
+    public abstract void compress(InputStream input, OutputStream output) throws IOException;
+
+    @Override
+    public abstract void decompress(InputStream input, OutputStream output) throws IOException;
+}
@@ -0,0 +1,224 @@
+package easyarchive;
+
+import java.io.IOException;
+
+// A reversible byte-to-byte stage for CodecPipeline. Stages work on whole
+// blocks in caller-provided arrays so the pipeline can hand buffers from one
+// stage to the next without copying. The id is recorded in pipeline output,
+// so never reuse a retired one.
+interface Transform {
+    int getTransformId();
+
+    // Short lower-case name used in pipeline specs such as "bwt+mtf+zrle+huffman".
+    String getTransformName();
+
+    // Upper bound of encode's output for an input of the given length.
+    int maxEncodedLength(int length);
+
+    // Encodes input[0, length) into output and returns the encoded length.
+    int encode(byte[] input, int length, byte[] output);
+
+    // Decodes input[0, length) into exactly outputLength bytes of output.
+    void decode(byte[] input, int length, byte[] output, int outputLength) throws IOException;
+
+    static Transform forId(int transformId) {
+        switch (transformId) {
+            case 0:
+                return new DeltaTransform();
+            case 1:
+                return new MoveToFrontTransform();
+            case 2:
+                return new BurrowsWheelerTransform();
+            case 3:
+                return new RunLengthTransform();
+            case 4:
+                return new ZeroRunTransform();
+            default:
+                throw new IllegalArgumentException("Unknown transform id: " + transformId);
+        }
+    }
+
+    static Transform forName(String name) {
+        for (int id = 0; id <= 4; id++) {
+            Transform transform = forId(id);
+            if (transform.getTransformName().equalsIgnoreCase(name)) {
+                return transform;
+            }
+        }
+        throw new IllegalArgumentException("Unknown transform: " + name);
+    }
+}
+
+
+// Differences between consecutive bytes, for sampled signals and tables of
+// slowly changing numbers.
+class DeltaTransform implements Transform {
+    @Override
+    public int getTransformId() {
+        return 0;
+    }
+
+    @Override
+    public String getTransformName() {
+        return "delta";
+    }
+
+    @Override
+    public int maxEncodedLength(int length) {
+        return length;
+    }
+
+    @Override
+    public int encode(byte[] input, int length, byte[] output) {
+        byte previous = 0;
+        for (int i = 0; i < length; i++) {
+            output[i] = (byte) (input[i] - previous);
+            previous = input[i];
+        }
+        return length;
+    }
+
+    @Override
+    public void decode(byte[] input, int length, byte[] output, int outputLength) throws IOException {
+        if (length != outputLength) {
+            throw new IOException("Corrupt delta stage length: " + length);
+        }
+        byte previous = 0;
+        for (int i = 0; i < length; i++) {
+            previous += input[i];
+            output[i] = previous;
+        }
+    }
+}
+
+
+class MoveToFrontTransform implements Transform {
+    @Override
+    public int getTransformId() {
+        return 1;
+    }
+
+    @Override
+    public String getTransformName() {
+        return "mtf";
+    }
+
+    @Override
+    public int maxEncodedLength(int length) {
+        return length;
+    }
+
+    @Override
+    public int encode(byte[] input, int length, byte[] output) {
+        MoveToFront.encode(input, length, output);
+        return length;
+    }
+
+    @Override
+    public void decode(byte[] input, int length, byte[] output, int outputLength) throws IOException {
+        if (length != outputLength) {
+            throw new IOException("Corrupt move-to-front stage length: " + length);
+        }
+        MoveToFront.decode(input, length, output);
+    }
+}
+
+
+// The last column followed by the primary index (4 bytes, big-endian).
+class BurrowsWheelerTransform implements Transform {
+    @Override
+    public int getTransformId() {
+        return 2;
+    }
+
+    @Override
+    public String getTransformName() {
+        return "bwt";
+    }
+
+    @Override
+    public int maxEncodedLength(int length) {
+        return length + 4;
+    }
+
+    @Override
+    public int encode(byte[] input, int length, byte[] output) {
+        if (length > BurrowsWheeler.MAX_LENGTH) {
+            throw new IllegalArgumentException("BWT blocks are limited to " + BurrowsWheeler.MAX_LENGTH + " bytes");
+        }
+        int primary = BurrowsWheeler.forward(input, length, output);
+        output[length] = (byte) (primary >>> 24);
+        output[length + 1] = (byte) (primary >>> 16);
+        output[length + 2] = (byte) (primary >>> 8);
+        output[length + 3] = (byte) primary;
+        return length + 4;
+    }
+
+    @Override
+    public void decode(byte[] input, int length, byte[] output, int outputLength) throws IOException {
+        if (length != outputLength + 4) {
+            throw new IOException("Corrupt BWT stage length: " + length);
+        }
+        int primary = (input[outputLength] & 0xFF) << 24 | (input[outputLength + 1] & 0xFF) << 16
+                | (input[outputLength + 2] & 0xFF) << 8 | (input[outputLength + 3] & 0xFF);
+        BurrowsWheeler.inverse(input, outputLength, primary, output);
+    }
+}
+
+
+// The literal/repeat token format of RunLengthCompressionAlgorithm.
+class RunLengthTransform implements Transform {
+    @Override
+    public int getTransformId() {
+        return 3;
+    }
+
+    @Override
+    public String getTransformName() {
+        return "rle";
+    }
+
+    @Override
+    public int maxEncodedLength(int length) {
+        return RunLengthCompressionAlgorithm.maxCodedLength(length);
+    }
+
+    @Override
+    public int encode(byte[] input, int length, byte[] output) {
+        return RunLengthCompressionAlgorithm.encodeBlock(input, length, output);
+    }
+
+    @Override
+    public void decode(byte[] input, int length, byte[] output, int outputLength) throws IOException {
+        RunLengthCompressionAlgorithm.decodeBlock(input, length, output, outputLength);
+    }
+}
+
+
+// Zero-run coding of move-to-front output (see MoveToFront).
+class ZeroRunTransform implements Transform {
+    @Override
+    public int getTransformId() {
+        return 4;
+    }
+
+    @Override
+    public String getTransformName() {
+        return "zrle";
+    }
+
+    @Override
+    public int maxEncodedLength(int length) {
+        return MoveToFront.maxZeroRunLength(length);
+    }
+
+    @Override
+    public int encode(byte[] input, int length, byte[] output) {
+        return MoveToFront.encodeZeroRuns(input, length, output);
+    }
+
+    @Override
+    public void decode(byte[] input, int length, byte[] output, int outputLength) throws IOException {
+        MoveToFront.decodeZeroRuns(input, length, output, outputLength);
+    }
+}